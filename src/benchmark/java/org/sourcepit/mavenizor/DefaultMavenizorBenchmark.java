@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor;
+
+import static org.sourcepit.mavenizor.MavenizorBenchmarkHarness.newInjector;
+import static org.sourcepit.mavenizor.MavenizorBenchmarkHarness.newSyntheticState;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sourcepit.mavenizor.Mavenizor.TargetType;
+import org.sourcepit.mavenizor.maven.converter.GAVStrategyFactory;
+
+import com.google.inject.Injector;
+
+/**
+ * Measures {@link DefaultMavenizor#mavenize(Mavenizor.Request)} end to end on synthetic states with Import-Package and
+ * Require-Bundle fan-out. Every iteration mavenizes once into an empty working directory, so the numbers are those of
+ * a cold run. The benchmark profile runs with <code>-prof gc</code>, so the GC allocation is reported next to the time.
+ * Run with
+ * <code>mvn -Pbenchmark test-compile exec:exec -Dbenchmark.includes=DefaultMavenizorBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DefaultMavenizorBenchmark {
+   @Param({ "100", "1000", "10000", "50000" })
+   public int bundles;
+
+   @Param({ "8" })
+   public int importFanOut;
+
+   @Param({ "2" })
+   public int requireFanOut;
+
+   private File baseDir;
+
+   private Injector injector;
+
+   private org.eclipse.osgi.service.resolver.State state;
+
+   private DefaultMavenizor mavenizor;
+
+   private Mavenizor.Request request;
+
+   @Setup
+   public void setUp() throws IOException {
+      baseDir = Files.createTempDirectory("mavenizor-benchmark").toFile();
+
+      injector = newInjector();
+      mavenizor = injector.getInstance(DefaultMavenizor.class);
+      state = newSyntheticState(new File(baseDir, "bundles"), bundles, importFanOut, requireFanOut);
+   }
+
+   @Setup(Level.Iteration)
+   public void newRequest() throws IOException {
+      // a fresh request and working directory, otherwise every run after the first one just reuses the previous
+      // conversion results and the run statistics pile up
+      final File workingDir = new File(baseDir, "work");
+      FileUtils.deleteDirectory(workingDir);
+
+      request = new Mavenizor.Request();
+      request.setState(state);
+      request.setGAVStrategy(injector.getInstance(GAVStrategyFactory.class).newGAVStrategy(
+         new GAVStrategyFactory.Request()));
+      request.setInputFilter(BundleFilter.ACCEPT_ALL);
+      request.setTargetType(TargetType.JAVA);
+      request.setWorkingDirectory(workingDir);
+   }
+
+   @TearDown
+   public void tearDown() throws IOException {
+      FileUtils.deleteDirectory(baseDir);
+   }
+
+   @Benchmark
+   public Mavenizor.Result mavenize() {
+      return mavenizor.mavenize(request);
+   }
+}
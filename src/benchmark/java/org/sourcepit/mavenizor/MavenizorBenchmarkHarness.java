@@ -0,0 +1,181 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor;
+
+import static org.sourcepit.mavenizor.MavenizorTestHarness.addBundleRequirement;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.addEmbeddedLibrary;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.addMavenMetaData;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.addPackageExport;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.addPackageImport;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.jar;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.newBundle;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.newManifest;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.newState;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.toDictionary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.eclipse.osgi.service.resolver.State;
+import org.eclipse.osgi.service.resolver.StateObjectFactory;
+import org.eclipse.sisu.space.BeanScanning;
+import org.eclipse.sisu.space.SpaceModule;
+import org.eclipse.sisu.space.URLClassSpace;
+import org.eclipse.sisu.wire.WireModule;
+import org.osgi.framework.BundleException;
+import org.sourcepit.common.manifest.osgi.BundleManifest;
+import org.sourcepit.common.maven.model.ArtifactKeyBuilder;
+import org.sourcepit.common.maven.model.ProjectKey;
+import org.sourcepit.common.utils.lang.Exceptions;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+public final class MavenizorBenchmarkHarness {
+   private MavenizorBenchmarkHarness() {
+      super();
+   }
+
+   public static Injector newInjector() {
+      final ClassLoader classLoader = MavenizorBenchmarkHarness.class.getClassLoader();
+      return Guice.createInjector(new WireModule(new SpaceModule(new URLClassSpace(classLoader), BeanScanning.CACHE)));
+   }
+
+   public static State newSyntheticState(File bundlesDir, int bundleCount, int importFanOut, int requireFanOut) {
+      final Random random = new Random(bundleCount);
+
+      final BundleManifest[] manifests = new BundleManifest[bundleCount];
+      for (int i = 0; i < bundleCount; i++) {
+         final BundleManifest manifest = newManifest(toSymbolicName(i), "1.0." + (i % 10) + ".v20180101");
+         addPackageExport(manifest, toPackageName(i), "1.0." + (i % 10));
+         addPackageExport(manifest, toPackageName(i) + ".internal", null);
+
+         // depend on earlier bundles only, the way a layered platform does
+         for (int j : pickPredecessors(random, i, importFanOut)) {
+            addPackageImport(manifest, toPackageName(j), "[1.0.0,2.0.0)", j % 7 == 0);
+         }
+         for (int j : pickPredecessors(random, i, requireFanOut)) {
+            addBundleRequirement(manifest, toSymbolicName(j), "1.0.0", j % 11 == 0);
+         }
+
+         newBundle(bundlesDir, manifest);
+         manifests[i] = manifest;
+      }
+      return newState(bundlesDir, manifests);
+   }
+
+   public static List<File> newTargetPlatform(File platformDir, int bundleCount, int embeddedLibraryPercent,
+      int mavenMetaDataPercent, int sourceBundlePercent) {
+      final Random random = new Random(bundleCount);
+
+      final List<File> bundleJars = new ArrayList<File>();
+      for (int i = 0; i < bundleCount; i++) {
+         final String version = "1.0." + (i % 10) + ".v20180101";
+
+         final BundleManifest manifest = newManifest(toSymbolicName(i), version);
+         addPackageExport(manifest, toPackageName(i), "1.0." + (i % 10));
+         for (int j : pickPredecessors(random, i, 4)) {
+            addPackageImport(manifest, toPackageName(j), "[1.0.0,2.0.0)", j % 7 == 0);
+         }
+         for (int j : pickPredecessors(random, i, 1)) {
+            addBundleRequirement(manifest, toSymbolicName(j), "1.0.0");
+         }
+
+         final File bundleDir = newBundle(platformDir, manifest);
+         if (random.nextInt(100) < embeddedLibraryPercent) {
+            addEmbeddedLibrary(bundleDir, manifest, ".");
+            final int libraries = 1 + random.nextInt(3);
+            for (int j = 0; j < libraries; j++) {
+               final ProjectKey libGav = newProjectKey("org.example.lib" + i, "lib" + j, "2." + j + ".0");
+               addEmbeddedLibrary(bundleDir, manifest, "lib/lib" + j + ".jar", libGav);
+            }
+         }
+         if (random.nextInt(100) < mavenMetaDataPercent) {
+            final String groupId = "org.example.vendor" + (i % 10);
+            addMavenMetaData(bundleDir, newProjectKey(groupId, "bundle" + i, "1.0." + (i % 10)));
+         }
+         bundleJars.add(toJar(bundleDir));
+
+         if (random.nextInt(100) < sourceBundlePercent) {
+            bundleJars.add(toJar(newBundle(platformDir, newManifest(toSymbolicName(i) + ".source", version))));
+         }
+      }
+      return bundleJars;
+   }
+
+   private static File toJar(File bundleDir) {
+      final File bundleJar = jar(bundleDir);
+      try {
+         FileUtils.deleteDirectory(bundleDir);
+      }
+      catch (IOException e) {
+         throw Exceptions.pipe(e);
+      }
+      return bundleJar;
+   }
+
+   private static ProjectKey newProjectKey(String groupId, String artifactId, String version) {
+      return new ArtifactKeyBuilder().setGroupId(groupId)
+         .setArtifactId(artifactId)
+         .setType("jar")
+         .setVersion(version)
+         .toArtifactKey()
+         .getProjectKey();
+   }
+
+   public static List<BundleDescription> newBundleDescriptions(int bundleCount) {
+      final StateObjectFactory stateFactory = StateObjectFactory.defaultFactory;
+      final State state = stateFactory.createState(true);
+
+      final List<BundleDescription> bundles = new ArrayList<BundleDescription>(bundleCount);
+      for (int i = 0; i < bundleCount; i++) {
+         final BundleManifest manifest = newManifest(toSymbolicName(i), "1.0." + (i % 10) + ".v20180101");
+         try {
+            bundles.add(stateFactory.createBundleDescription(state, toDictionary(manifest), "/bundles/"
+               + toSymbolicName(i) + ".jar", i));
+         }
+         catch (BundleException e) {
+            throw Exceptions.pipe(e);
+         }
+      }
+      return bundles;
+   }
+
+   private static Set<Integer> pickPredecessors(Random random, int index, int count) {
+      final Set<Integer> predecessors = new LinkedHashSet<Integer>();
+      final int max = Math.min(index, count);
+      while (predecessors.size() < max) {
+         predecessors.add(Integer.valueOf(random.nextInt(index)));
+      }
+      return predecessors;
+   }
+
+   public static String toSymbolicName(int index) {
+      return "org.example.vendor" + (index % 10) + ".component" + (index % 100) + ".bundle" + index;
+   }
+
+   private static String toPackageName(int index) {
+      return toSymbolicName(index) + ".api";
+   }
+}
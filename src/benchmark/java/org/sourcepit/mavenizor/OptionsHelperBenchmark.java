@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor;
+
+import static org.sourcepit.mavenizor.MavenizorBenchmarkHarness.newBundleDescriptions;
+import static org.sourcepit.mavenizor.MavenizorBenchmarkHarness.toSymbolicName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sourcepit.common.utils.props.LinkedPropertiesMap;
+import org.sourcepit.common.utils.props.PropertiesMap;
+import org.sourcepit.mavenizor.state.Requirement;
+
+/**
+ * Sweeps the number of options to show how bundle option lookups scale. Scores are per bundle or requirement. Run with
+ * <code>mvn -Pbenchmark test-compile exec:exec -Dbenchmark.includes=OptionsHelperBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OptionsHelperBenchmark {
+   private static final int BUNDLES = 1000;
+
+   private static final String[] OPTION_NAMES = { "@requirements.erase", "@embeddedLibraries.provided",
+      "@embeddedLibraries.optional", "@libraryMapping", "@requirementFilter" };
+
+   @Param({ "0", "10", "100", "500", "1000", "2000" })
+   public int options;
+
+   private final OptionsHelper optionsHelper = new OptionsHelper();
+
+   private PropertiesMap optionsMap;
+
+   private List<BundleDescription> bundles;
+
+   private List<Requirement> requirements;
+
+   @Setup
+   public void setUp() {
+      optionsMap = new LinkedPropertiesMap();
+      for (int i = 0; i < options; i++) {
+         final String optionName = OPTION_NAMES[i % OPTION_NAMES.length];
+         final String bundlePattern;
+         if (i % 4 == 0) {
+            bundlePattern = "org.example.vendor" + (i % 10) + ".component" + (i % 100) + ".**";
+         }
+         else {
+            bundlePattern = toSymbolicName(i);
+         }
+         final String value;
+         if ("@requirements.erase".equals(optionName)) {
+            value = "org.example.vendor" + ((i + 1) % 10) + ".**,!" + toSymbolicName(i + 1);
+         }
+         else {
+            value = String.valueOf(i % 2 == 0);
+         }
+         optionsMap.put(bundlePattern + optionName, value);
+      }
+
+      bundles = newBundleDescriptions(BUNDLES);
+
+      requirements = new ArrayList<Requirement>(BUNDLES);
+      for (int i = 0; i < BUNDLES; i++) {
+         final Requirement requirement = new Requirement();
+         requirement.setFrom(bundles.get(i));
+         requirement.setTo(bundles.get((i * 7 + 1) % BUNDLES));
+         requirements.add(requirement);
+      }
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BUNDLES)
+   public int getBundleOptions() {
+      final OptionsIndex index = new OptionsIndex(optionsMap);
+      int size = 0;
+      for (BundleDescription bundle : bundles) {
+         size += index.getBundleOptions(bundle, "@embeddedLibraries.provided").size();
+      }
+      return size;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BUNDLES)
+   public int isMatch() {
+      final OptionsIndex index = new OptionsIndex(optionsMap);
+      int matches = 0;
+      for (Requirement requirement : requirements) {
+         if (optionsHelper.isMatch(requirement, index, "@requirements.erase", false)) {
+            matches++;
+         }
+      }
+      return matches;
+   }
+}
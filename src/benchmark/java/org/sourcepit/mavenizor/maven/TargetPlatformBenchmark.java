@@ -0,0 +1,239 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven;
+
+import static org.sourcepit.mavenizor.MavenizorBenchmarkHarness.newTargetPlatform;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.artifact.installer.ArtifactInstaller;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.LegacySupport;
+import org.apache.maven.repository.RepositorySystem;
+import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
+import org.codehaus.plexus.ContainerConfiguration;
+import org.codehaus.plexus.DefaultContainerConfiguration;
+import org.codehaus.plexus.DefaultPlexusContainer;
+import org.codehaus.plexus.PlexusConstants;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.repository.LocalRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sourcepit.mavenizor.BundleFilter;
+import org.sourcepit.mavenizor.DefaultMavenizor;
+import org.sourcepit.mavenizor.Mavenizor;
+import org.sourcepit.mavenizor.Mavenizor.TargetType;
+import org.sourcepit.mavenizor.maven.converter.GAVStrategyFactory;
+import org.sourcepit.mavenizor.state.OsgiStateBuilder;
+
+/**
+ * Runs the phases of a mavenizor build against a target platform of jars written to a temp directory, one benchmark
+ * per phase: state build, resolve, mavenize and local repository install. Everything stays on the local file system,
+ * no network access is required. Run with
+ * <code>mvn -Pbenchmark test-compile exec:exec -Dbenchmark.includes=TargetPlatformBenchmark</code>.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class TargetPlatformBenchmark {
+   private static final Logger LOG = LoggerFactory.getLogger(TargetPlatformBenchmark.class);
+
+   @State(Scope.Benchmark)
+   public static class Platform {
+      @Param({ "100", "1000" })
+      public int bundles;
+
+      @Param({ "20" })
+      public int embeddedLibraryPercent;
+
+      @Param({ "30" })
+      public int mavenMetaDataPercent;
+
+      @Param({ "50" })
+      public int sourceBundlePercent;
+
+      File baseDir;
+
+      List<File> bundleJars;
+
+      DefaultPlexusContainer container;
+
+      @Setup
+      public void setUp() throws Exception {
+         baseDir = Files.createTempDirectory("mavenizor-benchmark").toFile();
+         bundleJars = newTargetPlatform(new File(baseDir, "platform"), bundles, embeddedLibraryPercent,
+            mavenMetaDataPercent, sourceBundlePercent);
+
+         final ContainerConfiguration config = new DefaultContainerConfiguration();
+         config.setClassPathScanning(PlexusConstants.SCANNING_INDEX);
+         config.setAutoWiring(true);
+         container = new DefaultPlexusContainer(config);
+      }
+
+      @TearDown
+      public void tearDown() throws IOException {
+         container.dispose();
+         FileUtils.deleteDirectory(baseDir);
+      }
+
+      OsgiStateBuilder newStateBuilder() {
+         final OsgiStateBuilder stateBuilder = new OsgiStateBuilder(getClass().getClassLoader());
+         stateBuilder.addSystemExecutionEnvironmentProperties();
+         for (File bundleJar : bundleJars) {
+            stateBuilder.addBundle(bundleJar);
+         }
+         return stateBuilder;
+      }
+
+      Mavenizor.Request newRequest(File workingDir) throws Exception {
+         final org.eclipse.osgi.service.resolver.State state = newStateBuilder().getState();
+         state.resolve(false);
+
+         final GAVStrategyFactory gavStrategyFactory = container.lookup(GAVStrategyFactory.class);
+
+         final Mavenizor.Request request = new Mavenizor.Request();
+         request.setState(state);
+         request.setGAVStrategy(gavStrategyFactory.newGAVStrategy(new GAVStrategyFactory.Request()));
+         request.setInputFilter(BundleFilter.ACCEPT_ALL);
+         request.setTargetType(TargetType.JAVA);
+         request.setWorkingDirectory(workingDir);
+         return request;
+      }
+   }
+
+   @State(Scope.Benchmark)
+   public static class UnresolvedState {
+      org.eclipse.osgi.service.resolver.State state;
+
+      @Setup(Level.Iteration)
+      public void setUp(Platform platform) {
+         state = platform.newStateBuilder().getState();
+      }
+   }
+
+   @State(Scope.Benchmark)
+   public static class ResolvedState {
+      Mavenizor mavenizor;
+
+      Mavenizor.Request request;
+
+      @Setup
+      public void setUp(Platform platform) throws Exception {
+         mavenizor = platform.container.lookup(DefaultMavenizor.class);
+         request = platform.newRequest(new File(platform.baseDir, "work"));
+      }
+
+      @Setup(Level.Iteration)
+      public void cleanWorkingDir() throws IOException {
+         FileUtils.deleteDirectory(request.getWorkingDirectory());
+      }
+   }
+
+   @State(Scope.Benchmark)
+   public static class MavenizedState {
+      Mavenizor.Result result;
+
+      File workingDir;
+
+      File localRepositoryDir;
+
+      ArtifactBundleDistributor distributor;
+
+      ArtifactInstaller installer;
+
+      ArtifactRepository localRepository;
+
+      @Setup
+      public void setUp(Platform platform) throws Exception {
+         // an own working directory, the mavenize benchmark clears its one on every iteration
+         workingDir = new File(platform.baseDir, "install-work");
+         result = platform.container.lookup(DefaultMavenizor.class).mavenize(platform.newRequest(workingDir));
+         localRepositoryDir = new File(platform.baseDir, "repository");
+
+         // the installer takes the repository session from the current build
+         final DefaultRepositorySystemSession repositorySession = MavenRepositorySystemUtils.newSession();
+         repositorySession.setOffline(true);
+         repositorySession.setLocalRepositoryManager(platform.container.lookup(
+            org.eclipse.aether.RepositorySystem.class).newLocalRepositoryManager(repositorySession,
+            new LocalRepository(localRepositoryDir)));
+         platform.container.lookup(LegacySupport.class).setSession(
+            new MavenSession(platform.container, repositorySession, new DefaultMavenExecutionRequest(),
+               new DefaultMavenExecutionResult()));
+
+         distributor = platform.container.lookup(ArtifactBundleDistributor.class);
+         installer = platform.container.lookup(ArtifactInstaller.class);
+         localRepository = platform.container.lookup(RepositorySystem.class).createLocalRepository(localRepositoryDir);
+      }
+
+      @Setup(Level.Iteration)
+      public void cleanLocalRepository() throws IOException {
+         FileUtils.deleteDirectory(localRepositoryDir);
+      }
+   }
+
+   @Benchmark
+   public org.eclipse.osgi.service.resolver.State buildState(Platform platform) {
+      return platform.newStateBuilder().getState();
+   }
+
+   @Benchmark
+   public org.eclipse.osgi.service.resolver.State resolve(UnresolvedState unresolved) {
+      unresolved.state.resolve(false);
+      return unresolved.state;
+   }
+
+   @Benchmark
+   public Mavenizor.Result mavenize(ResolvedState resolved) {
+      return resolved.mavenizor.mavenize(resolved.request);
+   }
+
+   @Benchmark
+   public void install(MavenizedState mavenized) {
+      final InstallationHandler handler = new InstallationHandler(LOG, mavenized.installer,
+         mavenized.localRepository, new FileDigests(), null, false);
+      try {
+         mavenized.distributor.distribute(mavenized.workingDir, mavenized.result.getArtifactBundles(), handler, false,
+            1);
+      }
+      finally {
+         handler.close();
+      }
+   }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven.converter;
+
+import static org.sourcepit.mavenizor.MavenizorTestHarness.getBundle;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.newBundle;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.newManifest;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.newState;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sourcepit.common.manifest.osgi.BundleManifest;
+import org.sourcepit.common.manifest.osgi.BundleManifestFactory;
+import org.sourcepit.common.manifest.osgi.ClassPathEntry;
+import org.sourcepit.common.utils.props.LinkedPropertiesMap;
+import org.sourcepit.common.utils.props.PropertiesMap;
+import org.sourcepit.mavenizor.Mavenizor.TargetType;
+
+/**
+ * Measures the per-bundle latency of {@link DefaultBundleConverter} for jar and directory bundles. The bundle carries
+ * Tycho metadata, so the converter scans the bundle, falls back to mavenization and then detects and extracts every
+ * embedded library. Run with
+ * <code>mvn -Pbenchmark test-compile exec:exec -Dbenchmark.includes=DefaultBundleConverterBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DefaultBundleConverterBenchmark {
+   private static final String SYMBOLIC_NAME = "org.sourcepit.benchmark";
+
+   private static final String VERSION = "1.0.0.v20180101";
+
+   private static final int PADDING_ENTRY_SIZE = 256 * 1024;
+
+   @Param({ "1", "20", "200" })
+   public int jarSizeMb;
+
+   @Param({ "false", "true" })
+   public boolean metaDataAtEnd;
+
+   @Param({ "0", "10", "50" })
+   public int embeddedLibraries;
+
+   private File baseDir;
+
+   private File workingDir;
+
+   private DefaultBundleConverter converter;
+
+   private BundleConverter.Request jarRequest;
+
+   private BundleConverter.Request dirRequest;
+
+   @Setup
+   public void setUp() throws IOException {
+      baseDir = Files.createTempDirectory("mavenizor-benchmark").toFile();
+      workingDir = new File(baseDir, "work");
+
+      final File jarBundlesDir = new File(baseDir, "jars");
+      final File dirBundlesDir = new File(baseDir, "dirs");
+
+      final BundleManifest manifest = newManifest(SYMBOLIC_NAME, VERSION);
+      addClassPathEntry(manifest, ".");
+      for (int i = 0; i < embeddedLibraries; i++) {
+         addClassPathEntry(manifest, "lib/lib" + i + ".jar");
+      }
+      final File bundleDir = newBundle(dirBundlesDir, manifest);
+
+      jarBundlesDir.mkdirs();
+      final File bundleJar = new File(jarBundlesDir, bundleDir.getName() + ".jar");
+      final JarOutputStream jarOut = new JarOutputStream(new FileOutputStream(bundleJar));
+      try {
+         writeBundle(jarOut, bundleDir);
+      }
+      finally {
+         jarOut.close();
+      }
+
+      converter = new DefaultBundleConverter();
+      jarRequest = newRequest(getBundle(newState(jarBundlesDir, manifest), SYMBOLIC_NAME));
+      dirRequest = newRequest(getBundle(newState(dirBundlesDir, manifest), SYMBOLIC_NAME));
+   }
+
+   @Setup(Level.Invocation)
+   public void cleanWorkingDir() throws IOException {
+      // otherwise the extractor finds the libraries of the previous invocation up to date
+      FileUtils.deleteDirectory(workingDir);
+   }
+
+   @TearDown
+   public void tearDown() throws IOException {
+      FileUtils.deleteDirectory(baseDir);
+   }
+
+   @Benchmark
+   public BundleConverter.Result jarBundle() {
+      return converter.toMavenArtifacts(jarRequest);
+   }
+
+   @Benchmark
+   public BundleConverter.Result directoryBundle() {
+      return converter.toMavenArtifacts(dirRequest);
+   }
+
+   private BundleConverter.Request newRequest(BundleDescription bundle) {
+      final BundleConverter.Request request = new BundleConverter.Request();
+      request.setBundle(bundle);
+      request.setTargetType(TargetType.JAVA);
+      request.setGAVStrategy(new DefaultGAVStrategyFactory().newGAVStrategy(new GAVStrategyFactory.Request()));
+      request.setOptions(new LinkedPropertiesMap());
+      request.setWorkingDirectory(workingDir);
+      return request;
+   }
+
+   private void writeBundle(JarOutputStream jarOut, File bundleDir) throws IOException {
+      addEntry(jarOut, null, JarFile.MANIFEST_NAME,
+         FileUtils.readFileToByteArray(new File(bundleDir, JarFile.MANIFEST_NAME)));
+
+      if (!metaDataAtEnd) {
+         addMavenMetaData(jarOut, bundleDir, "org.sourcepit", "benchmark", "1.0.0", "eclipse-plugin");
+      }
+
+      final Random random = new Random(jarSizeMb);
+      long remaining = jarSizeMb * 1024L * 1024L;
+      for (int i = 0; i < embeddedLibraries; i++) {
+         final byte[] lib = newLibrary(random, i);
+         addEntry(jarOut, bundleDir, "lib/lib" + i + ".jar", lib);
+         remaining -= lib.length;
+      }
+
+      // random content does not compress, so the jar ends up at about the requested size
+      for (int i = 0; remaining > 0; i++) {
+         final byte[] content = new byte[(int) Math.min(remaining, PADDING_ENTRY_SIZE)];
+         random.nextBytes(content);
+         addEntry(jarOut, bundleDir, "content/resource" + i + ".bin", content);
+         remaining -= content.length;
+      }
+
+      if (metaDataAtEnd) {
+         addMavenMetaData(jarOut, bundleDir, "org.sourcepit", "benchmark", "1.0.0", "eclipse-plugin");
+      }
+   }
+
+   private byte[] newLibrary(Random random, int index) throws IOException {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      final JarOutputStream jarOut = new JarOutputStream(bytes);
+      try {
+         if (!metaDataAtEnd) {
+            addMavenMetaData(jarOut, null, "org.example", "lib" + index, "1.0." + index, "jar");
+         }
+         for (int i = 0; i < 16; i++) {
+            final byte[] content = new byte[4096];
+            random.nextBytes(content);
+            addEntry(jarOut, null, "org/example/lib" + index + "/Class" + i + ".class", content);
+         }
+         if (metaDataAtEnd) {
+            addMavenMetaData(jarOut, null, "org.example", "lib" + index, "1.0." + index, "jar");
+         }
+      }
+      finally {
+         jarOut.close();
+      }
+      return bytes.toByteArray();
+   }
+
+   private static void addMavenMetaData(JarOutputStream jarOut, File dir, String groupId, String artifactId,
+      String version, String packaging) throws IOException {
+      final String path = "META-INF/maven/" + groupId + "/" + artifactId + "/";
+
+      final StringBuilder pom = new StringBuilder();
+      pom.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+      pom.append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n");
+      pom.append("  <modelVersion>4.0.0</modelVersion>\n");
+      pom.append("  <groupId>").append(groupId).append("</groupId>\n");
+      pom.append("  <artifactId>").append(artifactId).append("</artifactId>\n");
+      pom.append("  <version>").append(version).append("</version>\n");
+      pom.append("  <packaging>").append(packaging).append("</packaging>\n");
+      pom.append("</project>\n");
+      addEntry(jarOut, dir, path + "pom.xml", pom.toString().getBytes("UTF-8"));
+
+      final PropertiesMap pomProperties = new LinkedPropertiesMap();
+      pomProperties.put("groupId", groupId);
+      pomProperties.put("artifactId", artifactId);
+      pomProperties.put("version", version);
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      pomProperties.store(bytes);
+      addEntry(jarOut, dir, path + "pom.properties", bytes.toByteArray());
+   }
+
+   private static void addEntry(JarOutputStream jarOut, File dir, String name, byte[] content) throws IOException {
+      jarOut.putNextEntry(new JarEntry(name));
+      jarOut.write(content);
+      jarOut.closeEntry();
+
+      // the directory bundle gets the same content
+      if (dir != null) {
+         final File file = new File(dir, name);
+         file.getParentFile().mkdirs();
+         final OutputStream out = new FileOutputStream(file);
+         try {
+            out.write(content);
+         }
+         finally {
+            out.close();
+         }
+      }
+   }
+
+   private static void addClassPathEntry(BundleManifest manifest, String path) {
+      final ClassPathEntry cpEntry = BundleManifestFactory.eINSTANCE.createClassPathEntry();
+      cpEntry.getPaths().add(path);
+      manifest.getBundleClassPath(true).add(cpEntry);
+   }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven.converter;
+
+import static org.sourcepit.mavenizor.MavenizorBenchmarkHarness.newBundleDescriptions;
+import static org.sourcepit.mavenizor.MavenizorBenchmarkHarness.toSymbolicName;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Sweeps the number of <code>groupIdMappings</code> to show how group id derivation scales. Bundle <i>n</i> is matched
+ * by the <i>n</i>th mapping, so lookups walk ever longer mapping lists. Scores are per bundle and include building the
+ * strategy, because derived group ids are memoized per strategy. Run with
+ * <code>mvn -Pbenchmark test-compile exec:exec -Dbenchmark.includes=DefaultGAVStrategyBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DefaultGAVStrategyBenchmark {
+   private static final int BUNDLES = 1000;
+
+   @Param({ "0", "10", "100", "500", "1000", "2000" })
+   public int groupIdMappings;
+
+   private final GAVStrategyFactory gavStrategyFactory = new DefaultGAVStrategyFactory();
+
+   private GAVStrategyFactory.Request request;
+
+   private List<BundleDescription> bundles;
+
+   @Setup
+   public void setUp() {
+      request = new GAVStrategyFactory.Request();
+      for (int i = 0; i < groupIdMappings; i++) {
+         final String template = i % 2 == 0 ? "${bundle.groupId}.mapped" : "org.example.mapped" + i;
+         request.getGroupIdMappings().put(toSymbolicName(i), template);
+      }
+      bundles = newBundleDescriptions(BUNDLES);
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BUNDLES)
+   public void deriveGroupId(Blackhole blackhole) {
+      final GAVStrategy gavStrategy = gavStrategyFactory.newGAVStrategy(request);
+      for (BundleDescription bundle : bundles) {
+         blackhole.consume(gavStrategy.deriveGroupId(bundle));
+      }
+   }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven.converter;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sourcepit.common.utils.xml.XmlUtils;
+
+/**
+ * Compares the former DOM + XPath lookup of <code>/project/packaging</code> with {@link PomPackagingReader}. Run with
+ * <code>mvn -Pbenchmark test-compile exec:exec -Dbenchmark.includes=PomPackagingReaderBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PomPackagingReaderBenchmark {
+   @Param({ "0", "100", "1000" })
+   public int managedDependencies;
+
+   @Param({ "true", "false" })
+   public boolean packagingFirst;
+
+   private byte[] pom;
+
+   @Setup
+   public void setUp() throws UnsupportedEncodingException {
+      final StringBuilder sb = new StringBuilder();
+      sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+      sb.append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n");
+      sb.append("  <modelVersion>4.0.0</modelVersion>\n");
+      sb.append("  <groupId>org.sourcepit</groupId>\n");
+      sb.append("  <artifactId>benchmark</artifactId>\n");
+      sb.append("  <version>1.0.0</version>\n");
+      if (packagingFirst) {
+         sb.append("  <packaging>eclipse-plugin</packaging>\n");
+      }
+      sb.append("  <dependencyManagement>\n");
+      sb.append("    <dependencies>\n");
+      for (int i = 0; i < managedDependencies; i++) {
+         sb.append("      <dependency>\n");
+         sb.append("        <groupId>org.sourcepit.group").append(i).append("</groupId>\n");
+         sb.append("        <artifactId>artifact").append(i).append("</artifactId>\n");
+         sb.append("        <version>1.").append(i).append(".0</version>\n");
+         sb.append("        <exclusions>\n");
+         sb.append("          <exclusion><groupId>*</groupId><artifactId>*</artifactId></exclusion>\n");
+         sb.append("        </exclusions>\n");
+         sb.append("      </dependency>\n");
+      }
+      sb.append("    </dependencies>\n");
+      sb.append("  </dependencyManagement>\n");
+      if (!packagingFirst) {
+         sb.append("  <packaging>eclipse-plugin</packaging>\n");
+      }
+      sb.append("</project>\n");
+      pom = sb.toString().getBytes("UTF-8");
+   }
+
+   @Benchmark
+   public String domXPath() {
+      return XmlUtils.queryText(XmlUtils.readXml(new ByteArrayInputStream(pom)), "/project/packaging");
+   }
+
+   @Benchmark
+   public String stax() {
+      return PomPackagingReader.readPackaging(new ByteArrayInputStream(pom));
+   }
+}
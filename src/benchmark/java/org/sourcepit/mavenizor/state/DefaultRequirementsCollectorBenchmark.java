@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.state;
+
+import static org.sourcepit.mavenizor.MavenizorTestHarness.addBundleRequirement;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.addPackageExport;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.addPackageImport;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.getBundle;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.newManifest;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.newState;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sourcepit.common.manifest.osgi.BundleManifest;
+
+/**
+ * Sweeps the number of package imports of a single bundle to show how requirement collection scales. Every tenth
+ * exporter is also required via Require-Bundle. Run with
+ * <code>mvn -Pbenchmark test-compile exec:exec -Dbenchmark.includes=DefaultRequirementsCollectorBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DefaultRequirementsCollectorBenchmark {
+   @Param({ "0", "10", "50", "100", "250", "500" })
+   public int imports;
+
+   private final RequirementsCollector requirementsCollector = new DefaultRequirementsCollector();
+
+   private BundleDescription bundle;
+
+   @Setup
+   public void setUp() {
+      final BundleManifest[] manifests = new BundleManifest[imports + 1];
+
+      final BundleManifest importer = newManifest("org.example.importer", "1.0.0");
+      for (int i = 0; i < imports; i++) {
+         final String symbolicName = "org.example.exporter" + i;
+         final BundleManifest exporter = newManifest(symbolicName, "1.0.0");
+         addPackageExport(exporter, symbolicName + ".api", "1.0.0");
+         manifests[i + 1] = exporter;
+
+         addPackageImport(importer, symbolicName + ".api", "[1.0.0,2.0.0)", i % 7 == 0);
+         if (i % 10 == 0) {
+            addBundleRequirement(importer, symbolicName, "1.0.0");
+         }
+      }
+      manifests[0] = importer;
+
+      // locations only, the resolver does not touch the bundles
+      bundle = getBundle(newState(new File("bundles"), manifests), "org.example.importer");
+   }
+
+   @Benchmark
+   public Collection<Requirement> collectRequirements() {
+      return requirementsCollector.collectRequirements(bundle);
+   }
+}
@@ -22,10 +22,17 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -47,12 +54,14 @@ import org.sourcepit.common.maven.model.MavenModelFactory;
 import org.sourcepit.common.utils.lang.Exceptions;
 import org.sourcepit.common.utils.path.Path;
 import org.sourcepit.common.utils.props.PropertiesMap;
+import org.sourcepit.mavenizor.RunStatistics.Phase;
 import org.sourcepit.mavenizor.maven.converter.BundleConverter;
 import org.sourcepit.mavenizor.maven.converter.ConvertedArtifact;
 import org.sourcepit.mavenizor.maven.converter.ConvertionDirective;
 import org.sourcepit.mavenizor.maven.converter.GAVStrategy;
 import org.sourcepit.mavenizor.maven.tycho.TychoSourceIUResolver;
 import org.sourcepit.mavenizor.state.BundleAdapterFactory;
+import org.sourcepit.mavenizor.state.BundleHeaders;
 import org.sourcepit.mavenizor.state.Requirement;
 import org.sourcepit.mavenizor.state.RequirementsCollector;
 
@@ -77,7 +86,19 @@ public class DefaultMavenizor implements Mavenizor {
          ? BundleFilter.ACCEPT_ALL
          : request.getInputFilter();
 
-      final Result result = new Result();
+      final Session session = new Session(request, new Result());
+      final Result result = session.result;
+
+      final RunStatistics statistics = request.getStatistics();
+      if (request.getConversionThreads() > 1) {
+         final RunStatistics.Timer timer = statistics.start(Phase.CONVERSION);
+         try {
+            preconvert(session, inputFilter);
+         }
+         finally {
+            timer.stop();
+         }
+      }
 
       for (BundleDescription bundle : state.getBundles()) {
          if (isEclipseSourceBundle(bundle)) {
@@ -86,33 +107,235 @@ public class DefaultMavenizor implements Mavenizor {
          else {
             if (inputFilter.accept(bundle)) {
                result.getInputBundles().add(bundle);
-               mavenize(request, bundle, result);
+               try {
+                  mavenize(session, bundle);
+               }
+               catch (RuntimeException e) {
+                  if (request.isFailFast()) {
+                     throw e;
+                  }
+                  // recorded on the result, raised once a slice reaches the bundle
+                  LOG.debug("Failed to mavenize " + bundle, e);
+               }
             }
          }
       }
 
-      processSourceBundles(state, result, request.getSourceJarResolver());
+      final RunStatistics.Timer timer = statistics.start(Phase.SOURCE_ATTACHMENT);
+      try {
+         processSourceBundles(state, result, request.getSourceJarResolver());
+      }
+      finally {
+         timer.stop();
+      }
 
       return result;
    }
 
-   private void mavenize(Request request, BundleDescription bundle, Result result) {
+   private static final class Session {
+      private final Request request;
+
+      private final Result result;
+
+      private final OptionsIndex options;
+
+      // conversion failures stay on the future and surface only once the sequential pass reaches the bundle
+      private final Map<BundleDescription, Future<BundleConverter.Result>> preconvertedResults;
+
+      Session(Request request, Result result) {
+         this.request = request;
+         this.result = result;
+         this.options = new OptionsIndex(request.getOptions());
+         this.preconvertedResults = new HashMap<BundleDescription, Future<BundleConverter.Result>>();
+      }
+   }
+
+   private void preconvert(final Session session, BundleFilter inputFilter) {
+      final Request request = session.request;
+
+      final Set<BundleDescription> scheduled = new HashSet<BundleDescription>();
+
+      List<BundleDescription> wave = new ArrayList<BundleDescription>();
+      for (BundleDescription bundle : request.getState().getBundles()) {
+         if (!isEclipseSourceBundle(bundle) && inputFilter.accept(bundle) && scheduled.add(bundle)) {
+            wave.add(bundle);
+         }
+      }
+
+      final ExecutorService executor = Executors.newFixedThreadPool(request.getConversionThreads());
+      try {
+         while (!wave.isEmpty()) {
+            // resolve adapters before any worker starts, so that the workers only have to read them
+            for (BundleDescription bundle : wave) {
+               BundleAdapterFactory.DEFAULT.adapt(bundle, File.class);
+               BundleAdapterFactory.DEFAULT.adapt(bundle, BundleHeaders.class);
+            }
+
+            final Map<BundleDescription, Future<BundleConverter.Result>> futures;
+            futures = new LinkedHashMap<BundleDescription, Future<BundleConverter.Result>>();
+            for (final BundleDescription bundle : wave) {
+               futures.put(bundle, executor.submit(new Callable<BundleConverter.Result>() {
+                  public BundleConverter.Result call() throws Exception {
+                     final RunStatistics.Timer timer = request.getStatistics().startWorker(Phase.CONVERSION);
+                     try {
+                        return convert(request, bundle);
+                     }
+                     finally {
+                        timer.stop();
+                     }
+                  }
+               }));
+            }
+            awaitAll(futures.values());
+            session.preconvertedResults.putAll(futures);
+
+            // the next wave consists of the bundles the sequential pass will reach via dependencies
+            final List<BundleDescription> nextWave = new ArrayList<BundleDescription>();
+            for (Future<BundleConverter.Result> future : futures.values()) {
+               final BundleConverter.Result converterResult = getPreconvertedResult(future);
+               if (converterResult != null && hasMavenizedArtifact(converterResult.getConvertedArtifacts())) {
+                  for (BundleDescription requiredBundle : getReachableBundles(session, converterResult.getBundle())) {
+                     if (scheduled.add(requiredBundle)) {
+                        nextWave.add(requiredBundle);
+                     }
+                  }
+               }
+            }
+            wave = nextWave;
+         }
+      }
+      finally {
+         executor.shutdownNow();
+      }
+   }
+
+   private List<BundleDescription> getReachableBundles(Session session, BundleDescription bundle) {
+      final List<BundleDescription> requiredBundles = new ArrayList<BundleDescription>();
+      for (Requirement requirement : requirementsCollector.collectRequirements(bundle)) {
+         if (optionsHelper.isMatch(requirement, session.options, "@requirements.erase", false)) {
+            continue;
+         }
+         if (!optionsHelper.isMatch(requirement, session.options, "@requirements.permited", true)) {
+            // determineDependencies fails here, so none of the following requirements is reached
+            break;
+         }
+         final BundleDescription requiredBundle = requirement.getTo();
+         if (!isEclipseSourceBundle(requiredBundle)) {
+            requiredBundles.add(requiredBundle);
+         }
+      }
+      return requiredBundles;
+   }
+
+   private static void awaitAll(Collection<Future<BundleConverter.Result>> futures) {
+      for (Future<BundleConverter.Result> future : futures) {
+         getPreconvertedResult(future);
+      }
+   }
+
+   private static BundleConverter.Result getPreconvertedResult(Future<BundleConverter.Result> future) {
+      try {
+         return future.get();
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw Exceptions.pipe(e);
+      }
+      catch (ExecutionException e) {
+         return null;
+      }
+   }
+
+   private static BundleConverter.Result getConverterResult(Future<BundleConverter.Result> future) {
+      try {
+         return future.get();
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw Exceptions.pipe(e);
+      }
+      catch (ExecutionException e) {
+         final Throwable cause = e.getCause();
+         if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+         }
+         if (cause instanceof Error) {
+            throw (Error) cause;
+         }
+         throw Exceptions.pipe((Exception) cause);
+      }
+   }
+
+   private BundleConverter.Result convert(Request request, BundleDescription bundle) {
+      final MavenizorEvents.Event event = MavenizorEvents.begin(MavenizorEvents.Type.BUNDLE_CONVERSION);
+      final RunStatistics statistics = request.getStatistics();
+      // a bundle is converted by a single thread, which includes scanning, fingerprinting and extraction
+      final long bytesRead = statistics.getThreadBytesRead();
+      final long bytesCopied = statistics.getThreadBytesCopied();
+      final long start = System.nanoTime();
+      try {
+         return bundleConverter.toMavenArtifacts(newConverterRequest(request, bundle));
+      }
+      finally {
+         final long time = System.nanoTime() - start;
+         statistics.addBundleCost(bundle.toString(), time, statistics.getThreadBytesRead() - bytesRead,
+            statistics.getThreadBytesCopied() - bytesCopied);
+         request.getMetrics().recordTime("mavenizor_bundle_conversion_seconds", time);
+         event.setBundle(bundle.getSymbolicName()).commit();
+      }
+   }
+
+   private static BundleConverter.Request newConverterRequest(Request request, BundleDescription bundle) {
+      final BundleConverter.Request converterRequest = new BundleConverter.Request();
+      converterRequest.setBundle(bundle);
+      converterRequest.setTargetType(request.getTargetType());
+      converterRequest.setGAVStrategy(request.getGAVStrategy());
+      converterRequest.setOptions(request.getOptions());
+      converterRequest.setWorkingDirectory(request.getWorkingDirectory());
+      converterRequest.setConversionCache(request.getConversionCache());
+      converterRequest.setStatistics(request.getStatistics());
+      converterRequest.setMetrics(request.getMetrics());
+      return converterRequest;
+   }
+
+   private void mavenize(Session session, BundleDescription bundle) {
+      final Result result = session.result;
+      // a bundle that failed before also fails everything that depends on it
+      final RuntimeException failure = result.getFailure(bundle);
+      if (failure != null) {
+         throw failure;
+      }
       if (result.getConverterResult(bundle) != null || result.getSourceBundles().contains(bundle)) {
          return;
       }
 
+      try {
+         mavenizeBundle(session, bundle);
+      }
+      catch (RuntimeException e) {
+         Mavenizor.Result.addFailure(result, bundle, e);
+         throw e;
+      }
+   }
+
+   private void mavenizeBundle(Session session, BundleDescription bundle) {
+      final Result result = session.result;
+
       if (isEclipseSourceBundle(bundle)) {
          throw new IllegalStateException();
       }
       else {
-         final BundleConverter.Request converterRequest = new BundleConverter.Request();
-         converterRequest.setBundle(bundle);
-         converterRequest.setTargetType(request.getTargetType());
-         converterRequest.setGAVStrategy(request.getGAVStrategy());
-         converterRequest.setOptions(request.getOptions());
-         converterRequest.setWorkingDirectory(request.getWorkingDirectory());
-
-         final BundleConverter.Result converterResult = bundleConverter.toMavenArtifacts(converterRequest);
+         final Future<BundleConverter.Result> preconverted = session.preconvertedResults.remove(bundle);
+         BundleConverter.Result converterResult = preconverted == null ? null : getConverterResult(preconverted);
+         if (converterResult == null) {
+            final RunStatistics.Timer timer = session.request.getStatistics().start(Phase.CONVERSION);
+            try {
+               converterResult = convert(session.request, bundle);
+            }
+            finally {
+               timer.stop();
+            }
+         }
 
          Mavenizor.Result.addConverterResult(result, converterResult);
 
@@ -126,11 +349,18 @@ public class DefaultMavenizor implements Mavenizor {
                + " = mavenize | ignore | auto_detect | <groupId>:<artifactId>:<type>[:<classifier>]:<version>'");
          }
 
-         addDependencies(request, bundle, result);
+         final RunStatistics.Timer timer = session.request.getStatistics().start(Phase.DEPENDENCY_ASSEMBLY);
+         try {
+            addDependencies(session, bundle);
+         }
+         finally {
+            timer.stop();
+         }
       }
    }
 
-   private void addDependencies(Request request, BundleDescription bundle, Result result) {
+   private void addDependencies(Session session, BundleDescription bundle) {
+      final Result result = session.result;
       final Collection<ConvertedArtifact> artifacts = result.getConvertedArtifacts(bundle);
 
       List<Dependency> embeddedDependencies = null;
@@ -159,15 +389,14 @@ public class DefaultMavenizor implements Mavenizor {
             {
                // add dependencies to embedded bundles
                if (embeddedDependencies == null) {
-                  embeddedDependencies = determineEmbeddedDependencies(bundle, mainArtifact, request.getOptions(),
-                     result);
+                  embeddedDependencies = determineEmbeddedDependencies(bundle, mainArtifact, session.options, result);
                }
                pom.getDependencies().addAll(embeddedDependencies);
             }
 
             // add normal dependencies
             if (dependencies == null) {
-               dependencies = determineDependencies(request, bundle, result);
+               dependencies = determineDependencies(session, bundle);
             }
             pom.getDependencies().addAll(dependencies);
          }
@@ -194,7 +423,7 @@ public class DefaultMavenizor implements Mavenizor {
    }
 
    private List<Dependency> determineEmbeddedDependencies(BundleDescription bundle, ConvertedArtifact mainArtifact,
-      PropertiesMap options, Result result) {
+      OptionsIndex options, Result result) {
       final List<Dependency> embeddedDependencies = new ArrayList<Dependency>();
       for (ConvertedArtifact convertedArtifact : result.getConvertedArtifacts(bundle)) {
          if (convertedArtifact.isEmbeddedLibrary() && !convertedArtifact.equals(mainArtifact)) {
@@ -222,25 +451,27 @@ public class DefaultMavenizor implements Mavenizor {
       return embeddedDependencies;
    }
 
-   private List<Dependency> determineDependencies(Request request, BundleDescription bundle, Result result) {
+   private List<Dependency> determineDependencies(Session session, BundleDescription bundle) {
+      final Request request = session.request;
       final PropertiesMap options = request.getOptions();
+      final OptionsIndex optionsIndex = session.options;
 
       final List<Dependency> dependencies = new ArrayList<Dependency>();
 
       final Collection<Requirement> requirements = requirementsCollector.collectRequirements(bundle);
       for (Requirement requirement : requirements) {
-         if (optionsHelper.isMatch(requirement, options, "@requirements.erase", false)) {
+         if (optionsHelper.isMatch(requirement, optionsIndex, "@requirements.erase", false)) {
             LOG.info("Omitting requirement from " + requirement.getFrom() + " to " + requirement.getTo());
             continue;
          }
 
-         if (!optionsHelper.isMatch(requirement, options, "@requirements.permited", true)) {
+         if (!optionsHelper.isMatch(requirement, optionsIndex, "@requirements.permited", true)) {
             throw new IllegalStateException("Requirement from " + requirement.getFrom() + " to " + requirement.getTo()
                + " is not permitted.");
          }
 
          final BundleDescription requiredBundle = requirement.getTo();
-         final BundleConverter.Result converterResult = convertOnDemand(request, requiredBundle, result);
+         final BundleConverter.Result converterResult = convertOnDemand(session, requiredBundle);
 
          final boolean omitMainArtifacts = converterResult.getConvertionDirective() == ConvertionDirective.OMIT;
 
@@ -265,11 +496,11 @@ public class DefaultMavenizor implements Mavenizor {
                }
 
 
-               if (optionsHelper.isMatch(requirement, options, "@requirements.provided", false)) {
+               if (optionsHelper.isMatch(requirement, optionsIndex, "@requirements.provided", false)) {
                   dependency.setScope(Artifact.SCOPE_PROVIDED);
                }
 
-               if (optionsHelper.isMatch(requirement, options, "@requirements.optional", false)) {
+               if (optionsHelper.isMatch(requirement, optionsIndex, "@requirements.optional", false)) {
                   dependency.setOptional(true);
                }
 
@@ -315,19 +546,19 @@ public class DefaultMavenizor implements Mavenizor {
       }
    }
 
-   private BundleConverter.Result convertOnDemand(Request request, BundleDescription bundle, Result result) {
-      BundleConverter.Result converterResult = result.getConverterResult(bundle);
+   private BundleConverter.Result convertOnDemand(Session session, BundleDescription bundle) {
+      BundleConverter.Result converterResult = session.result.getConverterResult(bundle);
       if (converterResult == null) {
          // The bundle has not been mavenized... do it!
-         mavenize(request, bundle, result);
-         converterResult = result.getConverterResult(bundle);
+         mavenize(session, bundle);
+         converterResult = session.result.getConverterResult(bundle);
       }
       return converterResult;
    }
 
    private boolean isEclipseSourceBundle(BundleDescription bundle) {
-      final BundleManifest manifest = BundleAdapterFactory.DEFAULT.adapt(bundle, BundleManifest.class);
-      return manifest.getHeaderValue("Eclipse-SourceBundle") != null || bundle.getSymbolicName().endsWith(".source");
+      final BundleHeaders headers = BundleAdapterFactory.DEFAULT.adapt(bundle, BundleHeaders.class);
+      return headers.getHeaderValue("Eclipse-SourceBundle") != null || bundle.getSymbolicName().endsWith(".source");
    }
 
    private void processSourceBundles(final State state, final Result result, SourceJarResolver sourceJarResolver) {
@@ -395,8 +626,12 @@ public class DefaultMavenizor implements Mavenizor {
       }
    }
 
-   private boolean hasMavenizedArtifact(ArtifactBundle artifactBundle) {
-      for (ConvertedArtifact artifact : artifactBundle.getArtifacts()) {
+   private static boolean hasMavenizedArtifact(ArtifactBundle artifactBundle) {
+      return hasMavenizedArtifact(artifactBundle.getArtifacts());
+   }
+
+   private static boolean hasMavenizedArtifact(Collection<ConvertedArtifact> artifacts) {
+      for (ConvertedArtifact artifact : artifacts) {
          if (artifact.isMavenized()) {
             return true;
          }
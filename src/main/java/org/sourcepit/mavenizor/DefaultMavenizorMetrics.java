@@ -0,0 +1,38 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor;
+
+import java.io.File;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+@Named("default")
+@Singleton
+public class DefaultMavenizorMetrics implements MavenizorMetrics {
+   public void increment(String name, long delta, String... labels) {
+   }
+
+   public void recordTime(String name, long nanos, String... labels) {
+   }
+
+   public void recordSize(String name, long bytes, String... labels) {
+   }
+
+   public void store(File file) {
+   }
+}
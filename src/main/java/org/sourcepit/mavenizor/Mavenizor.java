@@ -17,21 +17,27 @@
 package org.sourcepit.mavenizor;
 
 import java.io.File;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
 import org.eclipse.osgi.service.resolver.BundleDescription;
 import org.eclipse.osgi.service.resolver.State;
 import org.sourcepit.common.maven.model.MavenArtifact;
 import org.sourcepit.common.utils.props.LinkedPropertiesMap;
 import org.sourcepit.common.utils.props.PropertiesMap;
 import org.sourcepit.mavenizor.maven.converter.BundleConverter;
+import org.sourcepit.mavenizor.maven.converter.ConversionCache;
 import org.sourcepit.mavenizor.maven.converter.ConvertedArtifact;
 import org.sourcepit.mavenizor.maven.converter.GAVStrategy;
 
@@ -67,6 +73,12 @@ public interface Mavenizor {
       private GAVStrategy gavStrategy;
       private PropertiesMap options = new LinkedPropertiesMap();
       private SourceJarResolver sourceJarResolver;
+      private int conversionThreads = 1;
+      private ConversionCache conversionCache;
+      private RunStatistics statistics = new RunStatistics();
+      private MavenizorMetrics metrics = new DefaultMavenizorMetrics();
+      // if false, the failure of an input bundle is recorded on the result and the remaining bundles are mavenized
+      private boolean failFast = true;
 
       public File getWorkingDirectory() {
          return workingDir;
@@ -119,6 +131,46 @@ public interface Mavenizor {
       public SourceJarResolver getSourceJarResolver() {
          return sourceJarResolver;
       }
+
+      public int getConversionThreads() {
+         return conversionThreads;
+      }
+
+      public void setConversionThreads(int conversionThreads) {
+         this.conversionThreads = conversionThreads;
+      }
+
+      public ConversionCache getConversionCache() {
+         return conversionCache;
+      }
+
+      public void setConversionCache(ConversionCache conversionCache) {
+         this.conversionCache = conversionCache;
+      }
+
+      public RunStatistics getStatistics() {
+         return statistics;
+      }
+
+      public void setStatistics(RunStatistics statistics) {
+         this.statistics = statistics;
+      }
+
+      public MavenizorMetrics getMetrics() {
+         return metrics;
+      }
+
+      public void setMetrics(MavenizorMetrics metrics) {
+         this.metrics = metrics;
+      }
+
+      public boolean isFailFast() {
+         return failFast;
+      }
+
+      public void setFailFast(boolean failFast) {
+         this.failFast = failFast;
+      }
    }
 
    class Result {
@@ -126,6 +178,7 @@ public interface Mavenizor {
       private final List<BundleDescription> sourceBundles = new ArrayList<BundleDescription>();
       private final Map<BundleDescription, BundleConverter.Result> bundleToconverterResultMap = new LinkedHashMap<BundleDescription, BundleConverter.Result>();
       private final Map<String, ArtifactBundle> gavToArtifactBundleMap = new LinkedHashMap<String, ArtifactBundle>();
+      private final Map<BundleDescription, RuntimeException> bundleToFailureMap = new LinkedHashMap<BundleDescription, RuntimeException>();
 
       public List<BundleDescription> getInputBundles() {
          return inputBundles;
@@ -139,6 +192,10 @@ public interface Mavenizor {
          return bundleToconverterResultMap.get(bundle);
       }
 
+      public RuntimeException getFailure(BundleDescription bundle) {
+         return bundleToFailureMap.get(bundle);
+      }
+
       public List<BundleConverter.Result> getConverterResults() {
          return new ArrayList<BundleConverter.Result>(bundleToconverterResultMap.values());
       }
@@ -200,6 +257,68 @@ public interface Mavenizor {
          return artifactBundle;
       }
 
+      public static Result slice(Result result, Collection<BundleDescription> inputBundles) {
+         final Result slice = new Result();
+         slice.getInputBundles().addAll(inputBundles);
+         slice.getSourceBundles().addAll(result.getSourceBundles());
+
+         // input bundles plus everything their POMs depend on
+         final Set<BundleDescription> bundles = new LinkedHashSet<BundleDescription>();
+         final Deque<BundleDescription> queue = new ArrayDeque<BundleDescription>(inputBundles);
+         while (!queue.isEmpty()) {
+            final BundleDescription bundle = queue.removeFirst();
+            if (!bundles.add(bundle)) {
+               continue;
+            }
+            final RuntimeException failure = result.getFailure(bundle);
+            if (failure != null) {
+               throw failure;
+            }
+            for (ArtifactBundle artifactBundle : result.getArtifactBundles(bundle)) {
+               final Model pom = artifactBundle.getPom();
+               if (pom == null) {
+                  continue;
+               }
+               for (Dependency dependency : pom.getDependencies()) {
+                  for (ArtifactBundle dependencyBundle : result.findArtifactBundles(dependency)) {
+                     queue.addAll(result.getBundles(dependencyBundle));
+                  }
+               }
+            }
+         }
+
+         for (Entry<BundleDescription, BundleConverter.Result> entry : result.bundleToconverterResultMap.entrySet()) {
+            if (bundles.contains(entry.getKey())) {
+               final BundleConverter.Result converterResult = entry.getValue();
+               slice.bundleToconverterResultMap.put(entry.getKey(), converterResult);
+               for (ConvertedArtifact convertedArtifact : converterResult.getConvertedArtifacts()) {
+                  final String gav = result.createGAV(convertedArtifact);
+                  slice.gavToArtifactBundleMap.put(gav, result.gavToArtifactBundleMap.get(gav));
+               }
+            }
+         }
+         return slice;
+      }
+
+      private List<ArtifactBundle> findArtifactBundles(Dependency dependency) {
+         final List<ArtifactBundle> artifactBundles = new ArrayList<ArtifactBundle>();
+         final String gav = dependency.getGroupId() + ":" + dependency.getArtifactId() + ":" + dependency.getVersion();
+         final ArtifactBundle artifactBundle = gavToArtifactBundleMap.get(gav);
+         if (artifactBundle != null) {
+            artifactBundles.add(artifactBundle);
+         }
+         else {
+            // version range
+            final String ga = dependency.getGroupId() + ":" + dependency.getArtifactId() + ":";
+            for (Entry<String, ArtifactBundle> entry : gavToArtifactBundleMap.entrySet()) {
+               if (entry.getKey().startsWith(ga)) {
+                  artifactBundles.add(entry.getValue());
+               }
+            }
+         }
+         return artifactBundles;
+      }
+
       public static void addConverterResult(Result result, BundleConverter.Result converterResult) {
          result.bundleToconverterResultMap.put(converterResult.getBundle(), converterResult);
          for (ConvertedArtifact convertedArtifact : converterResult.getConvertedArtifacts()) {
@@ -207,6 +326,10 @@ public interface Mavenizor {
          }
       }
 
+      public static void addFailure(Result result, BundleDescription bundle, RuntimeException failure) {
+         result.bundleToFailureMap.put(bundle, failure);
+      }
+
       private String createGAV(ConvertedArtifact artifact) {
          return createGAV(artifact.getMavenArtifact());
       }
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sourcepit.common.utils.lang.Exceptions;
+
+/**
+ * Emits Java Flight Recorder events for the mavenizor phases and hot operations. The JFR API is accessed reflectively
+ * via <code>jdk.jfr.EventFactory</code>, so the plugin keeps running on JVMs without it. As long as no recording is
+ * running, {@link #begin(Type)} costs a volatile read. Set <code>-Dmavenizor.jfr=false</code> to disable the events.
+ */
+public final class MavenizorEvents {
+   private static final Logger LOG = LoggerFactory.getLogger(MavenizorEvents.class);
+
+   public enum Type {
+      STATE_BUILD("StateBuild", "State Build"), STATE_RESOLVE("StateResolve", "State Resolve"), BUNDLE_CONVERSION(
+         "BundleConversion", "Bundle Conversion"), LIBRARY_EXTRACTION("LibraryExtraction",
+         "Embedded Library Extraction"), CHECKSUM("Checksum", "Checksum Computation"), REMOTE_CHECKSUM_LOOKUP(
+         "RemoteChecksumLookup", "Remote Checksum Lookup"), ARTIFACT_UPLOAD("ArtifactUpload", "Artifact Upload");
+
+      private final String name;
+
+      private final String label;
+
+      private Type(String name, String label) {
+         this.name = name;
+         this.label = label;
+      }
+   }
+
+   public static final class Event {
+      private final Object event;
+
+      Event(Object event) {
+         this.event = event;
+      }
+
+      public Event setBundle(String bundle) {
+         return set(BUNDLE, bundle);
+      }
+
+      public Event setGav(String gav) {
+         return set(GAV, gav);
+      }
+
+      public Event setBytes(long bytes) {
+         return set(BYTES, Long.valueOf(bytes));
+      }
+
+      private Event set(int index, Object value) {
+         if (event != null) {
+            JFR.invoke(JFR.set, event, Integer.valueOf(index), value);
+         }
+         return this;
+      }
+
+      public void commit() {
+         if (event != null) {
+            JFR.invoke(JFR.commit, event);
+         }
+      }
+   }
+
+   private static final int BUNDLE = 0;
+
+   private static final int GAV = 1;
+
+   private static final int BYTES = 2;
+
+   private static final Event DISABLED = new Event(null);
+
+   private static final Jfr JFR = Jfr.create();
+
+   private static volatile boolean recording;
+
+   private MavenizorEvents() {
+      super();
+   }
+
+   public static Event begin(Type type) {
+      if (!recording) {
+         return DISABLED;
+      }
+      final Object event = JFR.invoke(JFR.newEvent, JFR.factories[type.ordinal()]);
+      JFR.invoke(JFR.begin, event);
+      return new Event(event);
+   }
+
+   public static boolean isRecording() {
+      return recording;
+   }
+
+   private static final class Jfr implements InvocationHandler {
+      private final Object[] factories = new Object[Type.values().length];
+
+      private Method newEvent, begin, set, commit;
+
+      private Method isInitialized, getFlightRecorder, getRecordings, getState;
+
+      static Jfr create() {
+         if (!Boolean.parseBoolean(System.getProperty("mavenizor.jfr", "true"))) {
+            return null;
+         }
+         try {
+            final Jfr jfr = new Jfr();
+            jfr.init();
+            return jfr;
+         }
+         catch (ClassNotFoundException e) {
+            LOG.debug("Flight Recorder events are not supported by this JVM");
+         }
+         catch (Exception e) {
+            LOG.debug("Failed to register Flight Recorder events", e);
+         }
+         return null;
+      }
+
+      private void init() throws Exception {
+         final Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+         final Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+         final Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+         final Class<?> eventClass = Class.forName("jdk.jfr.Event");
+         final Class<?> nameClass = Class.forName("jdk.jfr.Name");
+         final Class<?> labelClass = Class.forName("jdk.jfr.Label");
+         final Class<?> categoryClass = Class.forName("jdk.jfr.Category");
+         final Class<?> dataAmountClass = Class.forName("jdk.jfr.DataAmount");
+
+         final Constructor<?> newAnnotation = annotationElementClass.getConstructor(Class.class, Object.class);
+         final Constructor<?> newValue = valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+
+         // same order as the BUNDLE, GAV and BYTES indices
+         final List<Object> fields = new ArrayList<Object>();
+         fields.add(newValue.newInstance(String.class, "bundle",
+            Arrays.asList(newAnnotation.newInstance(labelClass, "Bundle"))));
+         fields.add(newValue.newInstance(String.class, "gav",
+            Arrays.asList(newAnnotation.newInstance(labelClass, "GAV"))));
+         fields.add(newValue.newInstance(long.class, "bytes", Arrays.asList(newAnnotation.newInstance(labelClass,
+            "Bytes"), newAnnotation.newInstance(dataAmountClass, "BYTES"))));
+
+         final Method create = eventFactoryClass.getMethod("create", List.class, List.class);
+         for (Type type : Type.values()) {
+            final List<Object> annotations = new ArrayList<Object>();
+            annotations.add(newAnnotation.newInstance(nameClass, "org.sourcepit.mavenizor." + type.name));
+            annotations.add(newAnnotation.newInstance(labelClass, type.label));
+            annotations.add(newAnnotation.newInstance(categoryClass, new String[] { "Mavenizor" }));
+            factories[type.ordinal()] = create.invoke(null, annotations, fields);
+         }
+
+         newEvent = eventFactoryClass.getMethod("newEvent");
+         begin = eventClass.getMethod("begin");
+         set = eventClass.getMethod("set", int.class, Object.class);
+         commit = eventClass.getMethod("commit");
+
+         final Class<?> flightRecorderClass = Class.forName("jdk.jfr.FlightRecorder");
+         isInitialized = flightRecorderClass.getMethod("isInitialized");
+         getFlightRecorder = flightRecorderClass.getMethod("getFlightRecorder");
+         getRecordings = flightRecorderClass.getMethod("getRecordings");
+         getState = Class.forName("jdk.jfr.Recording").getMethod("getState");
+
+         // track the recording state, so that begin() doesn't have to ask the recorder
+         final Class<?> listenerClass = Class.forName("jdk.jfr.FlightRecorderListener");
+         final Object listener = Proxy.newProxyInstance(MavenizorEvents.class.getClassLoader(),
+            new Class<?>[] { listenerClass }, this);
+         flightRecorderClass.getMethod("addListener", listenerClass).invoke(null, listener);
+         updateRecording();
+      }
+
+      public Object invoke(Object proxy, Method method, Object[] args) {
+         final String name = method.getName();
+         if ("equals".equals(name)) {
+            return Boolean.valueOf(proxy == args[0]);
+         }
+         if ("hashCode".equals(name)) {
+            return Integer.valueOf(System.identityHashCode(proxy));
+         }
+         if ("toString".equals(name)) {
+            return MavenizorEvents.class.getName();
+         }
+         // recorderInitialized or recordingStateChanged
+         updateRecording();
+         return null;
+      }
+
+      private synchronized void updateRecording() {
+         boolean running = false;
+         if (((Boolean) invoke(isInitialized, null)).booleanValue()) {
+            final Object flightRecorder = invoke(getFlightRecorder, null);
+            for (Object flightRecording : (List<?>) invoke(getRecordings, flightRecorder)) {
+               if ("RUNNING".equals(String.valueOf(invoke(getState, flightRecording)))) {
+                  running = true;
+                  break;
+               }
+            }
+         }
+         recording = running;
+      }
+
+      Object invoke(Method method, Object target, Object... args) {
+         try {
+            return method.invoke(target, args);
+         }
+         catch (Exception e) {
+            throw Exceptions.pipe(e);
+         }
+      }
+   }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor;
+
+import java.io.File;
+
+/**
+ * Receives the metrics of a mavenizor run. Implementations are looked up by name, see <code>metrics</code> parameter of
+ * the mojos. Labels are passed as name value pairs.
+ */
+public interface MavenizorMetrics {
+   void increment(String name, long delta, String... labels);
+
+   void recordTime(String name, long nanos, String... labels);
+
+   void recordSize(String name, long bytes, String... labels);
+
+   /**
+    * Writes all metrics recorded by this instance, creating the parent directory if needed.
+    */
+   void store(File file);
+}
@@ -17,13 +17,13 @@
 package org.sourcepit.mavenizor;
 
 import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import javax.inject.Named;
 
 import org.eclipse.osgi.service.resolver.BundleDescription;
 import org.sourcepit.common.constraints.NotNull;
-import org.sourcepit.common.utils.path.PathMatcher;
 import org.sourcepit.common.utils.props.PropertiesMap;
 import org.sourcepit.mavenizor.state.Requirement;
 
@@ -39,16 +39,7 @@ public class OptionsHelper {
       final LinkedHashMap<String, String> result = new LinkedHashMap<String, String>();
       switch (compareMode) {
          case MATCH_PATTERN :
-            for (Entry<String, String> entry : options.entrySet()) {
-               final String key = entry.getKey();
-               if (key.endsWith(optionName)) {
-                  final String keyPattern = key.substring(0, key.length() - optionName.length());
-                  if (isMatch(bundle, keyPattern)) {
-                     String value = entry.getValue();
-                     result.put(key, value);
-                  }
-               }
-            }
+            result.putAll(new OptionsIndex(options).getBundleOptions(bundle, optionName));
             break;
          case EQUAL_VALUE :
             String key = bundle.getSymbolicName() + "_" + bundle.getVersion() + optionName;
@@ -77,8 +68,12 @@ public class OptionsHelper {
 
    public boolean getBooleanValue(BundleDescription bundle, PropertiesMap options, String optionName,
       boolean defaultValue) {
-      final LinkedHashMap<String, String> bundleOptions = getBundleOptions(bundle, options, optionName,
-         CompareMode.MATCH_PATTERN);
+      return getBooleanValue(bundle, new OptionsIndex(options), optionName, defaultValue);
+   }
+
+   public boolean getBooleanValue(BundleDescription bundle, OptionsIndex options, String optionName,
+      boolean defaultValue) {
+      final Map<String, String> bundleOptions = options.getBundleOptions(bundle, optionName);
       for (Entry<String, String> bundleOption : bundleOptions.entrySet()) {
          return Boolean.valueOf(bundleOption.getValue());
       }
@@ -86,34 +81,17 @@ public class OptionsHelper {
    }
 
    public boolean isMatch(Requirement requirement, PropertiesMap options, String optionName, boolean defaultValue) {
-      final LinkedHashMap<String, String> bundleOptions = getBundleOptions(requirement.getFrom(), options, optionName,
-         CompareMode.MATCH_PATTERN);
+      return isMatch(requirement, new OptionsIndex(options), optionName, defaultValue);
+   }
+
+   public boolean isMatch(Requirement requirement, OptionsIndex options, String optionName, boolean defaultValue) {
+      final Map<String, String> bundleOptions = options.getBundleOptions(requirement.getFrom(), optionName);
       for (Entry<String, String> bundleOption : bundleOptions.entrySet()) {
          final String value = bundleOption.getValue();
-         if (isMatch(requirement.getTo(), value)) {
+         if (options.isMatch(requirement.getTo(), value)) {
             return true;
          }
       }
       return defaultValue;
    }
-
-   private boolean isMatch(BundleDescription bundle, String patterns) {
-      if (patterns != null) {
-         final PathMatcher macher = PathMatcher.parse(patterns, ".", ",");
-
-         if (macher.isExclude(bundle.getSymbolicName())) {
-            return false;
-         }
-
-         if (macher.isMatch(bundle.getSymbolicName() + "_" + bundle.getVersion())) {
-            return true;
-         }
-
-         if (macher.isMatch(bundle.getSymbolicName())) {
-            return true;
-         }
-      }
-      return false;
-   }
-
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.sourcepit.common.utils.path.PathMatcher;
+import org.sourcepit.common.utils.props.PropertiesMap;
+
+public class OptionsIndex {
+   private static class Option {
+      private final String key;
+
+      private final String value;
+
+      private final PathMatcher keyMatcher;
+
+      Option(String key, String value, PathMatcher keyMatcher) {
+         this.key = key;
+         this.value = value;
+         this.keyMatcher = keyMatcher;
+      }
+   }
+
+   private final PropertiesMap options;
+
+   private final Map<String, List<Option>> suffixToOptionsMap = new HashMap<String, List<Option>>();
+
+   private final Map<String, PathMatcher> patternToMatcherMap = new HashMap<String, PathMatcher>();
+
+   private final Map<String, Map<BundleDescription, Map<String, String>>> bundleOptionsCache = new HashMap<String, Map<BundleDescription, Map<String, String>>>();
+
+   public OptionsIndex(PropertiesMap options) {
+      this.options = options;
+   }
+
+   public PropertiesMap getOptions() {
+      return options;
+   }
+
+   public synchronized Map<String, String> getBundleOptions(BundleDescription bundle, String optionName) {
+      Map<BundleDescription, Map<String, String>> bundleToOptionsMap = bundleOptionsCache.get(optionName);
+      if (bundleToOptionsMap == null) {
+         bundleToOptionsMap = new HashMap<BundleDescription, Map<String, String>>();
+         bundleOptionsCache.put(optionName, bundleToOptionsMap);
+      }
+
+      Map<String, String> bundleOptions = bundleToOptionsMap.get(bundle);
+      if (bundleOptions == null) {
+         final LinkedHashMap<String, String> result = new LinkedHashMap<String, String>();
+         for (Option option : getOptions(optionName)) {
+            if (isMatch(bundle, option.keyMatcher)) {
+               result.put(option.key, option.value);
+            }
+         }
+         bundleOptions = Collections.unmodifiableMap(result);
+         bundleToOptionsMap.put(bundle, bundleOptions);
+      }
+      return bundleOptions;
+   }
+
+   public synchronized boolean isMatch(BundleDescription bundle, String patterns) {
+      return patterns != null && isMatch(bundle, getMatcher(patterns));
+   }
+
+   private List<Option> getOptions(String optionName) {
+      List<Option> suffixOptions = suffixToOptionsMap.get(optionName);
+      if (suffixOptions == null) {
+         suffixOptions = new ArrayList<Option>();
+         for (Entry<String, String> entry : options.entrySet()) {
+            final String key = entry.getKey();
+            if (key.endsWith(optionName)) {
+               final String keyPattern = key.substring(0, key.length() - optionName.length());
+               suffixOptions.add(new Option(key, entry.getValue(), getMatcher(keyPattern)));
+            }
+         }
+         suffixToOptionsMap.put(optionName, suffixOptions);
+      }
+      return suffixOptions;
+   }
+
+   private PathMatcher getMatcher(String patterns) {
+      PathMatcher matcher = patternToMatcherMap.get(patterns);
+      if (matcher == null) {
+         matcher = PathMatcher.parse(patterns, ".", ",");
+         patternToMatcherMap.put(patterns, matcher);
+      }
+      return matcher;
+   }
+
+   private static boolean isMatch(BundleDescription bundle, PathMatcher macher) {
+      if (macher.isExclude(bundle.getSymbolicName())) {
+         return false;
+      }
+
+      if (macher.isMatch(bundle.getSymbolicName() + "_" + bundle.getVersion())) {
+         return true;
+      }
+
+      if (macher.isMatch(bundle.getSymbolicName())) {
+         return true;
+      }
+
+      return false;
+   }
+}
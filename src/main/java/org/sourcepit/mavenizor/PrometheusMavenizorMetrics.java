@@ -0,0 +1,202 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor;
+
+import static org.sourcepit.common.utils.io.IO.buffOut;
+import static org.sourcepit.common.utils.io.IO.fileOut;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import javax.inject.Named;
+
+import org.sourcepit.common.utils.io.IOOperation;
+import org.sourcepit.common.utils.lang.Exceptions;
+
+/**
+ * Writes the metrics in the Prometheus text format, e.g. for the textfile collector of the node exporter. Times are
+ * exported in seconds. Not a singleton, every mojo execution records into an instance of its own, so concurrent
+ * executions of a parallel build don't mix their values.
+ */
+@Named("prometheus")
+public class PrometheusMavenizorMetrics implements MavenizorMetrics {
+   private static final double[] TIME_BUCKETS = { 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10, 60 };
+
+   private static final double[] SIZE_BUCKETS = { 1024, 10 * 1024, 100 * 1024, 1024 * 1024, 10 * 1024 * 1024,
+      100 * 1024 * 1024 };
+
+   private static class Histogram {
+      private final double[] buckets;
+
+      private final long[] counts;
+
+      private double sum;
+
+      private long count;
+
+      Histogram(double[] buckets) {
+         this.buckets = buckets;
+         this.counts = new long[buckets.length];
+      }
+
+      void observe(double value) {
+         for (int i = 0; i < buckets.length; i++) {
+            if (value <= buckets[i]) {
+               counts[i]++;
+            }
+         }
+         sum += value;
+         count++;
+      }
+   }
+
+   // metric name -> labels -> value
+   private final Map<String, Map<String, long[]>> counters = new TreeMap<String, Map<String, long[]>>();
+
+   private final Map<String, Map<String, Histogram>> histograms = new TreeMap<String, Map<String, Histogram>>();
+
+   public synchronized void increment(String name, long delta, String... labels) {
+      Map<String, long[]> series = counters.get(name);
+      if (series == null) {
+         series = new TreeMap<String, long[]>();
+         counters.put(name, series);
+      }
+      final String key = toLabels(labels);
+      long[] value = series.get(key);
+      if (value == null) {
+         value = new long[1];
+         series.put(key, value);
+      }
+      value[0] += delta;
+   }
+
+   public void recordTime(String name, long nanos, String... labels) {
+      observe(name, TIME_BUCKETS, nanos / 1000000000D, labels);
+   }
+
+   public void recordSize(String name, long bytes, String... labels) {
+      observe(name, SIZE_BUCKETS, bytes, labels);
+   }
+
+   private synchronized void observe(String name, double[] buckets, double value, String... labels) {
+      Map<String, Histogram> series = histograms.get(name);
+      if (series == null) {
+         series = new TreeMap<String, Histogram>();
+         histograms.put(name, series);
+      }
+      final String key = toLabels(labels);
+      Histogram histogram = series.get(key);
+      if (histogram == null) {
+         histogram = new Histogram(buckets);
+         series.put(key, histogram);
+      }
+      histogram.observe(value);
+   }
+
+   private static String toLabels(String... labels) {
+      if (labels.length % 2 != 0) {
+         throw new IllegalArgumentException("Labels must be name value pairs");
+      }
+      final StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < labels.length; i += 2) {
+         if (sb.length() > 0) {
+            sb.append(',');
+         }
+         sb.append(labels[i]).append("=\"");
+         sb.append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"));
+         sb.append('"');
+      }
+      return sb.toString();
+   }
+
+   public synchronized String toText() {
+      final StringBuilder sb = new StringBuilder();
+      for (Entry<String, Map<String, long[]>> metric : counters.entrySet()) {
+         final String name = metric.getKey();
+         sb.append("# TYPE ").append(name).append(" counter\n");
+         for (Entry<String, long[]> series : metric.getValue().entrySet()) {
+            appendSample(sb, name, series.getKey(), null, String.valueOf(series.getValue()[0]));
+         }
+      }
+      for (Entry<String, Map<String, Histogram>> metric : histograms.entrySet()) {
+         final String name = metric.getKey();
+         sb.append("# TYPE ").append(name).append(" histogram\n");
+         for (Entry<String, Histogram> series : metric.getValue().entrySet()) {
+            final String labels = series.getKey();
+            final Histogram histogram = series.getValue();
+            for (int i = 0; i < histogram.buckets.length; i++) {
+               appendSample(sb, name + "_bucket", labels, "le=\"" + histogram.buckets[i] + "\"",
+                  String.valueOf(histogram.counts[i]));
+            }
+            appendSample(sb, name + "_bucket", labels, "le=\"+Inf\"", String.valueOf(histogram.count));
+            appendSample(sb, name + "_sum", labels, null, String.valueOf(histogram.sum));
+            appendSample(sb, name + "_count", labels, null, String.valueOf(histogram.count));
+         }
+      }
+      return sb.toString();
+   }
+
+   private static void appendSample(StringBuilder sb, String name, String labels, String extraLabel, String value) {
+      sb.append(name);
+      if (labels.length() > 0 || extraLabel != null) {
+         sb.append('{');
+         sb.append(labels);
+         if (extraLabel != null) {
+            if (labels.length() > 0) {
+               sb.append(',');
+            }
+            sb.append(extraLabel);
+         }
+         sb.append('}');
+      }
+      sb.append(' ').append(value).append('\n');
+   }
+
+   public void store(File file) {
+      final byte[] bytes;
+      try {
+         bytes = toText().getBytes("UTF-8");
+      }
+      catch (IOException e) {
+         throw Exceptions.pipe(e);
+      }
+
+      file.getParentFile().mkdirs();
+
+      // scrapers must never see a partially written file
+      final File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+      new IOOperation<OutputStream>(buffOut(fileOut(tmpFile, true))) {
+         @Override
+         protected void run(OutputStream out) throws IOException {
+            out.write(bytes);
+         }
+      }.run();
+      try {
+         Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch (IOException e) {
+         throw Exceptions.pipe(e);
+      }
+   }
+}
@@ -0,0 +1,416 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor;
+
+import static org.sourcepit.common.utils.io.IO.buffOut;
+import static org.sourcepit.common.utils.io.IO.fileOut;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sourcepit.common.utils.io.IOOperation;
+import org.sourcepit.common.utils.lang.Exceptions;
+
+public class RunStatistics {
+   public enum Phase {
+      BUNDLE_RESOLUTION("bundleResolution"),
+      MANIFEST_PARSING("manifestParsing"),
+      STATE_RESOLUTION("stateResolution"),
+      CONVERSION("conversion"),
+      DEPENDENCY_ASSEMBLY("dependencyAssembly"),
+      SOURCE_ATTACHMENT("sourceAttachment"),
+      DISTRIBUTION("distribution");
+
+      private final String literal;
+
+      private Phase(String literal) {
+         this.literal = literal;
+      }
+
+      public String literal() {
+         return literal;
+      }
+   }
+
+   public static final class Cost {
+      private final String id;
+
+      private long time;
+
+      private long bytesRead;
+
+      private long bytesCopied;
+
+      Cost(String id) {
+         this.id = id;
+      }
+
+      public String getId() {
+         return id;
+      }
+
+      public long getTime() {
+         return time;
+      }
+
+      public long getBytesRead() {
+         return bytesRead;
+      }
+
+      public long getBytesCopied() {
+         return bytesCopied;
+      }
+   }
+
+   public final class Timer {
+      private final Phase phase;
+
+      private final Timer parent;
+
+      private final boolean bookWallTime;
+
+      private long wallStart;
+
+      private long cpuStart;
+
+      Timer(Phase phase, Timer parent, boolean bookWallTime) {
+         this.phase = phase;
+         this.parent = parent;
+         this.bookWallTime = bookWallTime;
+         resume();
+      }
+
+      public void stop() {
+         pause();
+         currentTimer.set(parent);
+         if (parent != null) {
+            parent.resume();
+         }
+      }
+
+      void pause() {
+         addTime(phase, bookWallTime ? System.nanoTime() - wallStart : 0L, getCpuTime() - cpuStart);
+      }
+
+      void resume() {
+         wallStart = System.nanoTime();
+         cpuStart = getCpuTime();
+      }
+   }
+
+   // cpu time of the timing thread, so that neither other modules nor other phases are charged to a phase. Worker
+   // threads of a parallel phase book their own share, see startWorker
+   private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+   // phases nest, e.g. conversion of required bundles during dependency assembly, time is booked to the innermost
+   private final ThreadLocal<Timer> currentTimer = new ThreadLocal<Timer>();
+
+   private final Map<Phase, long[]> phaseToTimesMap = new EnumMap<Phase, long[]>(Phase.class);
+
+   private final Map<String, Cost> bundleCosts = new HashMap<String, Cost>();
+
+   private final Map<String, Cost> artifactBundleCosts = new HashMap<String, Cost>();
+
+   private final AtomicLong bundles = new AtomicLong();
+
+   private final AtomicLong artifacts = new AtomicLong();
+
+   private final AtomicLong bytesRead = new AtomicLong();
+
+   private final AtomicLong bytesCopied = new AtomicLong();
+
+   private final AtomicLong bytesUploaded = new AtomicLong();
+
+   private final AtomicLong wallTime = new AtomicLong();
+
+   private final AtomicLong mavenizationTime = new AtomicLong();
+
+   // bytes are booked to the current thread too, the share of a single bundle conversion is taken as a delta
+   private final ThreadLocal<long[]> threadBytes = new ThreadLocal<long[]>() {
+      @Override
+      protected long[] initialValue() {
+         return new long[2];
+      }
+   };
+
+   public Timer start(Phase phase) {
+      return start(phase, true);
+   }
+
+   /**
+    * Starts a timer on a worker thread of a phase that is timed by the thread waiting for the workers. Only the cpu
+    * time of the worker is booked, its wall time is part of the waiting thread's.
+    */
+   public Timer startWorker(Phase phase) {
+      return start(phase, false);
+   }
+
+   private Timer start(Phase phase, boolean bookWallTime) {
+      final Timer parent = currentTimer.get();
+      if (parent != null) {
+         parent.pause();
+      }
+      final Timer timer = new Timer(phase, parent, bookWallTime);
+      currentTimer.set(timer);
+      return timer;
+   }
+
+   private synchronized void addTime(Phase phase, long wallTime, long cpuTime) {
+      long[] times = phaseToTimesMap.get(phase);
+      if (times == null) {
+         times = new long[2];
+         phaseToTimesMap.put(phase, times);
+      }
+      times[0] += wallTime;
+      times[1] += cpuTime;
+   }
+
+   public synchronized long getWallTime(Phase phase) {
+      final long[] times = phaseToTimesMap.get(phase);
+      return times == null ? 0L : times[0];
+   }
+
+   /**
+    * Returns <code>-1</code> if the JVM doesn't provide the cpu time of threads.
+    */
+   public synchronized long getCpuTime(Phase phase) {
+      if (!isCpuTimeSupported()) {
+         return -1L;
+      }
+      final long[] times = phaseToTimesMap.get(phase);
+      return times == null ? 0L : times[1];
+   }
+
+   public static boolean isCpuTimeSupported() {
+      return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+   }
+
+   /**
+    * Sets the elapsed time of the whole run.
+    */
+   public void setWallTime(long nanos) {
+      wallTime.set(nanos);
+   }
+
+   public long getWallTime() {
+      return wallTime.get();
+   }
+
+   /**
+    * Sets the elapsed time of the mavenization, which the bundle throughput is based on.
+    */
+   public void setMavenizationTime(long nanos) {
+      mavenizationTime.set(nanos);
+   }
+
+   public long getMavenizationTime() {
+      return mavenizationTime.get();
+   }
+
+   public void addBundleCost(String bundle, long time, long bytesRead, long bytesCopied) {
+      addCost(bundleCosts, bundle, time, bytesRead, bytesCopied);
+   }
+
+   public void addArtifactBundleCost(String artifactBundle, long time) {
+      addCost(artifactBundleCosts, artifactBundle, time, 0L, 0L);
+   }
+
+   private synchronized void addCost(Map<String, Cost> costs, String id, long time, long bytesRead, long bytesCopied) {
+      Cost cost = costs.get(id);
+      if (cost == null) {
+         cost = new Cost(id);
+         costs.put(id, cost);
+      }
+      cost.time += time;
+      cost.bytesRead += bytesRead;
+      cost.bytesCopied += bytesCopied;
+   }
+
+   public List<Cost> getBundleCosts() {
+      return sortByTime(bundleCosts);
+   }
+
+   public List<Cost> getArtifactBundleCosts() {
+      return sortByTime(artifactBundleCosts);
+   }
+
+   private synchronized List<Cost> sortByTime(Map<String, Cost> costs) {
+      final List<Cost> sorted = new ArrayList<Cost>(costs.values());
+      Collections.sort(sorted, new Comparator<Cost>() {
+         public int compare(Cost c1, Cost c2) {
+            return c1.time < c2.time ? 1 : c1.time > c2.time ? -1 : c1.id.compareTo(c2.id);
+         }
+      });
+      return sorted;
+   }
+
+   public void addBundles(long count) {
+      bundles.addAndGet(count);
+   }
+
+   public long getBundles() {
+      return bundles.get();
+   }
+
+   public void addArtifacts(long count) {
+      artifacts.addAndGet(count);
+   }
+
+   public long getArtifacts() {
+      return artifacts.get();
+   }
+
+   public void addBytesRead(long bytes) {
+      bytesRead.addAndGet(bytes);
+      threadBytes.get()[0] += bytes;
+   }
+
+   public long getBytesRead() {
+      return bytesRead.get();
+   }
+
+   /**
+    * Returns the bytes read by the current thread.
+    */
+   public long getThreadBytesRead() {
+      return threadBytes.get()[0];
+   }
+
+   public void addBytesCopied(long bytes) {
+      bytesCopied.addAndGet(bytes);
+      threadBytes.get()[1] += bytes;
+   }
+
+   public long getBytesCopied() {
+      return bytesCopied.get();
+   }
+
+   /**
+    * Returns the bytes copied by the current thread.
+    */
+   public long getThreadBytesCopied() {
+      return threadBytes.get()[1];
+   }
+
+   public void addBytesUploaded(long bytes) {
+      bytesUploaded.addAndGet(bytes);
+   }
+
+   public long getBytesUploaded() {
+      return bytesUploaded.get();
+   }
+
+   public String toJson() {
+      // elapsed times are measured by the caller, the phases don't cover everything a run does
+      long cpuTime = 0;
+
+      final StringBuilder json = new StringBuilder();
+      json.append("{\n");
+      json.append("  \"phases\": {\n");
+      final Phase[] phases = Phase.values();
+      for (int i = 0; i < phases.length; i++) {
+         final Phase phase = phases[i];
+         cpuTime += getCpuTime(phase);
+         json.append("    \"").append(phase.literal()).append("\": { ");
+         json.append("\"wallTimeMillis\": ").append(toMillis(getWallTime(phase))).append(", ");
+         json.append("\"cpuTimeMillis\": ").append(isCpuTimeSupported() ? toMillis(getCpuTime(phase)) : -1L)
+            .append(" }");
+         json.append(i < phases.length - 1 ? ",\n" : "\n");
+      }
+      json.append("  },\n");
+      json.append("  \"wallTimeMillis\": ").append(toMillis(getWallTime())).append(",\n");
+      json.append("  \"cpuTimeMillis\": ").append(isCpuTimeSupported() ? toMillis(cpuTime) : -1L).append(",\n");
+      json.append("  \"counters\": {\n");
+      json.append("    \"bundles\": ").append(getBundles()).append(",\n");
+      json.append("    \"artifacts\": ").append(getArtifacts()).append(",\n");
+      json.append("    \"bytesRead\": ").append(getBytesRead()).append(",\n");
+      json.append("    \"bytesCopied\": ").append(getBytesCopied()).append(",\n");
+      json.append("    \"bytesUploaded\": ").append(getBytesUploaded()).append("\n");
+      json.append("  },\n");
+      json.append("  \"throughput\": {\n");
+      json.append("    \"bundlesPerSecond\": ").append(perSecond(getBundles(), getMavenizationTime())).append(",\n");
+      json.append("    \"artifactsPerSecond\": ")
+         .append(perSecond(getArtifacts(), getWallTime(Phase.DISTRIBUTION)))
+         .append("\n");
+      json.append("  }\n");
+      json.append("}\n");
+      return json.toString();
+   }
+
+   public void store(File file) {
+      write(file, toJson());
+   }
+
+   public void storeCosts(File file) {
+      final StringBuilder csv = new StringBuilder();
+      csv.append("type,id,timeMillis,bytesRead,bytesCopied\n");
+      for (Cost cost : getBundleCosts()) {
+         appendCost(csv, "bundle", cost);
+      }
+      for (Cost cost : getArtifactBundleCosts()) {
+         appendCost(csv, "artifactBundle", cost);
+      }
+      write(file, csv.toString());
+   }
+
+   private static void appendCost(StringBuilder csv, String type, Cost cost) {
+      csv.append(type).append(',');
+      csv.append(cost.id).append(',');
+      csv.append(toMillis(cost.time)).append(',');
+      csv.append(cost.bytesRead).append(',');
+      csv.append(cost.bytesCopied).append('\n');
+   }
+
+   private static void write(File file, String content) {
+      final byte[] bytes;
+      try {
+         bytes = content.getBytes("UTF-8");
+      }
+      catch (IOException e) {
+         throw Exceptions.pipe(e);
+      }
+      new IOOperation<OutputStream>(buffOut(fileOut(file, true))) {
+         @Override
+         protected void run(OutputStream out) throws IOException {
+            out.write(bytes);
+         }
+      }.run();
+   }
+
+   public static long toMillis(long nanos) {
+      return nanos / 1000000L;
+   }
+
+   private static long perSecond(long count, long nanos) {
+      return nanos <= 0 ? 0L : count * 1000000000L / nanos;
+   }
+
+   private static long getCpuTime() {
+      return isCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0L;
+   }
+}
@@ -30,7 +30,6 @@ import org.eclipse.osgi.service.resolver.BundleDescription;
 import org.sourcepit.common.utils.lang.Exceptions;
 import org.sourcepit.mavenizor.ArtifactBundle;
 import org.sourcepit.mavenizor.Mavenizor.Result;
-import org.sourcepit.mavenizor.maven.ArtifactBundleDistributor.DistributionHandler;
 import org.sourcepit.mavenizor.state.BundleAdapterFactory;
 
 /**
@@ -55,9 +54,14 @@ public abstract class AbstractDistributingMavenizorMojo extends AbstractMavenizo
    @Parameter(property = "forceOverwriteProjectBundles", defaultValue = "true")
    protected boolean forceOverwriteProjectBundles;
 
+   @Parameter(property = "distributionThreads", defaultValue = "1")
+   protected int distributionThreads;
+
    @Override
    protected void processResult(Result result) {
-      final DistributionHandler handler = getDistributionHandler();
+      final AbstractDistributionHandler handler = getDistributionHandler();
+      handler.setStatistics(getStatistics());
+      handler.setMetrics(getMetrics());
       final Set<ArtifactBundle> scopeProject = new LinkedHashSet<ArtifactBundle>();
       final Set<ArtifactBundle> scopeDependency = new LinkedHashSet<ArtifactBundle>();
       for (ArtifactBundle artifactBundle : result.getArtifactBundles()) {
@@ -68,13 +72,18 @@ public abstract class AbstractDistributingMavenizorMojo extends AbstractMavenizo
             scopeDependency.add(artifactBundle);
          }
       }
-      logger.info("Distributing project bundles...");
-      for (ArtifactBundle artifactBundle : scopeProject) {
-         distributor.distribute(workingDir, artifactBundle, handler, forceOverwriteProjectBundles);
+      try {
+         logger.info("Distributing project bundles...");
+         distributor.distribute(workingDir, scopeProject, handler, forceOverwriteProjectBundles, distributionThreads);
+         logger.info("Distributing target platform bundles...");
+         distributor.distribute(workingDir, scopeDependency, handler, forceOverwrite, distributionThreads);
       }
-      logger.info("Distributing target platform bundles...");
-      for (ArtifactBundle artifactBundle : scopeDependency) {
-         distributor.distribute(workingDir, artifactBundle, handler, forceOverwrite);
+      finally {
+         handler.close();
+         final FileDigests fileDigests = handler.getFileDigests();
+         getStatistics().addBytesRead(fileDigests.getBytesRead());
+         getMetrics().increment("mavenizor_checksum_cache_hits_total", fileDigests.getCacheHits());
+         getMetrics().increment("mavenizor_checksum_cache_misses_total", fileDigests.getCacheMisses());
       }
    }
 
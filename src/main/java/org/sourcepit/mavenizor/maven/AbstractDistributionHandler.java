@@ -17,33 +17,65 @@
 package org.sourcepit.mavenizor.maven;
 
 import java.io.File;
-import java.io.IOException;
-import java.util.Collections;
-import java.util.Map;
+import java.util.Collection;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.ArtifactUtils;
-import org.eclipse.aether.util.ChecksumUtils;
 import org.slf4j.Logger;
-import org.sourcepit.common.utils.lang.Exceptions;
+import org.sourcepit.mavenizor.DefaultMavenizorMetrics;
+import org.sourcepit.mavenizor.MavenizorMetrics;
+import org.sourcepit.mavenizor.RunStatistics;
 import org.sourcepit.mavenizor.maven.ArtifactBundleDistributor.DistributionHandler;
 
 public abstract class AbstractDistributionHandler implements DistributionHandler {
    final private Logger log;
 
-   public AbstractDistributionHandler(Logger log) {
+   final private FileDigests fileDigests;
+
+   private RunStatistics statistics = new RunStatistics();
+
+   private MavenizorMetrics metrics = new DefaultMavenizorMetrics();
+
+   public AbstractDistributionHandler(Logger log, FileDigests fileDigests) {
       this.log = log;
+      this.fileDigests = fileDigests;
+   }
+
+   public RunStatistics getStatistics() {
+      return statistics;
+   }
+
+   public void setStatistics(RunStatistics statistics) {
+      this.statistics = statistics;
+   }
+
+   public MavenizorMetrics getMetrics() {
+      return metrics;
+   }
+
+   public void setMetrics(MavenizorMetrics metrics) {
+      this.metrics = metrics;
    }
 
    public void distribute(Artifact artifact, boolean forceOverwrite) {
+      statistics.addArtifacts(1);
       if (forceOverwrite || !existsInTarget(artifact)) {
          doDistribute(artifact);
+         metrics.increment("mavenizor_artifacts_distributed_total", 1L, "type", artifact.getType());
+         metrics.recordSize("mavenizor_artifact_size_bytes", artifact.getFile().length(), "type", artifact.getType());
       }
       else {
+         metrics.increment("mavenizor_artifacts_skipped_total", 1L, "type", artifact.getType());
          log.info("Skipped distribution of " + artifact + ". It already exists in target.");
       }
    }
 
+   public void prepare(Collection<Artifact> artifacts) {
+   }
+
+   public void close() {
+   }
+
    protected Logger getLog() {
       return log;
    }
@@ -74,19 +106,11 @@ public abstract class AbstractDistributionHandler implements DistributionHandler
 
    protected abstract String getTargetChecksum(Artifact artifact);
 
-   protected static String calc(final File targetFile, String algo) {
-      try {
-         final Map<String, Object> checksums = ChecksumUtils.calc(targetFile, Collections.singleton(algo));
-
-         final Object checksum = checksums.values().iterator().next();
-         if (checksum instanceof Throwable) {
-            throw new IllegalStateException((Throwable) checksum);
-         }
+   protected FileDigests getFileDigests() {
+      return fileDigests;
+   }
 
-         return (String) checksum;
-      }
-      catch (IOException e) {
-         throw Exceptions.pipe(e);
-      }
+   protected String calc(final File targetFile, String algo) {
+      return fileDigests.getDigest(targetFile, algo);
    }
 }
@@ -19,15 +19,20 @@ package org.sourcepit.mavenizor.maven;
 import static com.google.common.base.Strings.isNullOrEmpty;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Provider;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.execution.MavenSession;
@@ -51,7 +56,6 @@ import org.eclipse.tycho.core.shared.TargetEnvironment;
 import org.eclipse.tycho.core.utils.TychoProjectUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.sourcepit.common.manifest.osgi.BundleManifest;
 import org.sourcepit.common.utils.lang.Exceptions;
 import org.sourcepit.common.utils.lang.PipedException;
 import org.sourcepit.common.utils.path.Path;
@@ -62,14 +66,21 @@ import org.sourcepit.mavenizor.BundleFilter;
 import org.sourcepit.mavenizor.Mavenizor;
 import org.sourcepit.mavenizor.Mavenizor.Result;
 import org.sourcepit.mavenizor.Mavenizor.TargetType;
+import org.sourcepit.mavenizor.MavenizorEvents;
+import org.sourcepit.mavenizor.MavenizorMetrics;
+import org.sourcepit.mavenizor.RunStatistics;
+import org.sourcepit.mavenizor.RunStatistics.Phase;
 import org.sourcepit.mavenizor.SourceJarResolver;
 import org.sourcepit.mavenizor.maven.BundleResolver.Handler;
 import org.sourcepit.mavenizor.maven.converter.BundleConverter;
+import org.sourcepit.mavenizor.maven.converter.ConversionCache;
 import org.sourcepit.mavenizor.maven.converter.ConvertionDirective;
 import org.sourcepit.mavenizor.maven.converter.GAVStrategy;
 import org.sourcepit.mavenizor.maven.converter.GAVStrategyFactory;
 import org.sourcepit.mavenizor.state.BundleAdapterFactory;
+import org.sourcepit.mavenizor.state.BundleHeaders;
 import org.sourcepit.mavenizor.state.OsgiStateBuilder;
+import org.sourcepit.mavenizor.state.OsgiStateSnapshots;
 
 public abstract class AbstractMavenizorMojo extends AbstractMojo {
    private final class MultiProperty extends HashSet<String> {
@@ -125,8 +136,39 @@ public abstract class AbstractMavenizorMojo extends AbstractMojo {
    @Parameter(property = "projectFilter", defaultValue = "**")
    private String projectFilter;
 
+   @Parameter(property = "conversionThreads", defaultValue = "1")
+   private int conversionThreads;
+
+   @Parameter(property = "useConversionCache", defaultValue = "false")
+   private boolean useConversionCache;
+
+   @Parameter(property = "conversionCacheHashContent", defaultValue = "false")
+   private boolean conversionCacheHashContent;
+
+   @Parameter(property = "useStateSnapshot", defaultValue = "false")
+   private boolean useStateSnapshot;
+
+   @Parameter(property = "shareResultInSession", defaultValue = "false")
+   private boolean shareResultInSession;
+
+   @Parameter(property = "sharedWorkingDir", defaultValue = "${session.executionRootDirectory}/target/mavenizor-shared")
+   private File sharedWorkingDir;
+
+   @Parameter(property = "costSummarySize", defaultValue = "10")
+   private int costSummarySize;
+
+   @Parameter(property = "metrics", defaultValue = "default")
+   private String metrics;
+
+   @Parameter(property = "metricsFile", defaultValue = "${project.build.directory}/mavenizor/metrics.prom")
+   private File metricsFile;
+
    private Set<File> bundleLocationsInBuildScope;
 
+   private RunStatistics statistics;
+
+   private MavenizorMetrics metricsImpl;
+
    @Inject
    @Named("tycho-project")
    private BundleResolver bundleResolver;
@@ -137,8 +179,15 @@ public abstract class AbstractMavenizorMojo extends AbstractMojo {
    @Inject
    private GAVStrategyFactory gavStrategyFactory;
 
+   @Inject
+   private SharedMavenizorResults sharedResults;
+
    @Inject
    private Map<String, TychoProject> projectTypes;
+
+   // a new collector per execution, see PrometheusMavenizorMetrics
+   @Inject
+   private Map<String, Provider<MavenizorMetrics>> metricsImpls;
    
    public final void execute() throws MojoExecutionException, MojoFailureException {
       try {
@@ -162,9 +211,20 @@ public abstract class AbstractMavenizorMojo extends AbstractMojo {
          return;
       }
 
+      statistics = new RunStatistics();
+      final Provider<MavenizorMetrics> metricsProvider = metricsImpls.get(metrics);
+      if (metricsProvider == null) {
+         throw Exceptions.pipe(new MojoExecutionException("Unknown metrics implementation '" + metrics
+            + "'. Available implementations are " + metricsImpls.keySet()));
+      }
+      metricsImpl = metricsProvider.get();
+      final long start = System.nanoTime();
+
       Result result = (Result) project.getContextValue("mavenizor.result");
-      if (result == null) {
+      final boolean mavenized = result == null;
+      if (mavenized) {
          result = doMavenize();
+         statistics.setMavenizationTime(System.nanoTime() - start);
          writePropertyTemplate(result);
 
          for (BundleConverter.Result converterResult : result.getConverterResults()) {
@@ -177,10 +237,54 @@ public abstract class AbstractMavenizorMojo extends AbstractMojo {
          project.setContextValue("mavenizor.result", result);
       }
 
+      // counted from the result, which may also be the one of a previous execution or of the build session
+      final int bundles = result.getInputBundles().size();
+      statistics.addBundles(bundles);
 
       if (!dryRun) {
-         processResult(result);
+         final RunStatistics.Timer timer = statistics.start(Phase.DISTRIBUTION);
+         try {
+            processResult(result);
+         }
+         finally {
+            timer.stop();
+         }
       }
+
+      statistics.setWallTime(System.nanoTime() - start);
+
+      // a reused result has been reported by the execution that mavenized it, which must not be overwritten
+      if (mavenized) {
+         statistics.store(new File(workingDir, "statistics.json"));
+         statistics.storeCosts(new File(workingDir, "costs.csv"));
+      }
+
+      metricsImpl.increment("mavenizor_runs_total", 1L);
+      metricsImpl.increment("mavenizor_bundles_total", bundles);
+      metricsImpl.recordTime("mavenizor_run_seconds", System.nanoTime() - start);
+      metricsImpl.store(metricsFile);
+      logCostSummary("bundles", statistics.getBundleCosts());
+      logCostSummary("artifact bundles", statistics.getArtifactBundleCosts());
+   }
+
+   private void logCostSummary(String title, List<RunStatistics.Cost> costs) {
+      if (costSummarySize < 1 || costs.isEmpty()) {
+         return;
+      }
+      logger.info("Slowest " + title + ":");
+      logger.info(String.format("  %10s %14s %14s  %s", "time (ms)", "read (bytes)", "copied (bytes)", "id"));
+      for (RunStatistics.Cost cost : costs.subList(0, Math.min(costSummarySize, costs.size()))) {
+         logger.info(String.format("  %10d %14d %14d  %s", RunStatistics.toMillis(cost.getTime()),
+            cost.getBytesRead(), cost.getBytesCopied(), cost.getId()));
+      }
+   }
+
+   protected RunStatistics getStatistics() {
+      return statistics;
+   }
+
+   protected MavenizorMetrics getMetrics() {
+      return metricsImpl;
    }
 
    private void writePropertyTemplate(Result result) {
@@ -239,14 +343,100 @@ public abstract class AbstractMavenizorMojo extends AbstractMojo {
    protected Result doMavenize() {
       final OsgiStateBuilder stateBuilder = new OsgiStateBuilder(TychoProjectUtils.class.getClassLoader());
       addPlatformProperties(session, stateBuilder);
-      addBundles(stateBuilder);
 
-      final State state = resolveState(stateBuilder);
+      final RunStatistics.Timer timer = statistics.start(Phase.BUNDLE_RESOLUTION);
+      final List<File> bundleLocations;
+      try {
+         bundleLocations = resolveBundleLocations();
+      }
+      finally {
+         timer.stop();
+      }
 
       final Mavenizor.Request request = new Mavenizor.Request();
       populateRequest(request);
-      request.setState(state);
-      return mavenizor.mavenize(request);
+      request.setStatistics(statistics);
+      request.setMetrics(metricsImpl);
+
+      if (!shareResultInSession) {
+         request.setState(buildState(request, stateBuilder, bundleLocations));
+         return mavenize(request);
+      }
+
+      // mavenize the whole target platform once and hand out the part reachable from this project. The shared run
+      // neither writes to nor counts for the project that happens to start it.
+      final BundleFilter inputFilter = request.getInputFilter();
+      request.setInputFilter(BundleFilter.ACCEPT_ALL);
+      request.setFailFast(false);
+      request.setWorkingDirectory(sharedWorkingDir.getAbsoluteFile());
+      request.setStatistics(new RunStatistics());
+      if (useConversionCache) {
+         request.setConversionCache(new ConversionCache(new File(sharedWorkingDir, "conversion-cache.properties")
+            .getAbsoluteFile(), conversionCacheHashContent));
+      }
+
+      final String key = newSharedResultKey(request, bundleLocations, stateBuilder);
+      final Result sharedResult = sharedResults.getOrCompute(session, key, new Callable<Result>() {
+         public Result call() {
+            logger.info("Mavenizing target platform for all projects of the build session");
+            final RunStatistics sharedStatistics = request.getStatistics();
+            final long start = System.nanoTime();
+            request.setState(buildState(request, stateBuilder, bundleLocations));
+            final Result result = mavenize(request);
+            final long time = System.nanoTime() - start;
+            sharedStatistics.setMavenizationTime(time);
+            sharedStatistics.setWallTime(time);
+            sharedStatistics.addBundles(result.getInputBundles().size());
+            sharedStatistics.store(new File(sharedWorkingDir, "statistics.json"));
+            sharedStatistics.storeCosts(new File(sharedWorkingDir, "costs.csv"));
+            return result;
+         }
+      });
+
+      final List<BundleDescription> inputBundles = new ArrayList<BundleDescription>();
+      for (BundleDescription bundle : sharedResult.getInputBundles()) {
+         if (inputFilter.accept(bundle)) {
+            inputBundles.add(bundle);
+         }
+      }
+      return Result.slice(sharedResult, inputBundles);
+   }
+
+   private Result mavenize(final Mavenizor.Request request) {
+      final ConversionCache conversionCache = request.getConversionCache();
+      if (conversionCache == null) {
+         return mavenizor.mavenize(request);
+      }
+
+      conversionCache.setStatistics(request.getStatistics());
+      conversionCache.load();
+      final Result result = mavenizor.mavenize(request);
+      conversionCache.save();
+      return result;
+   }
+
+   private String newSharedResultKey(Mavenizor.Request request, List<File> bundleLocations,
+      OsgiStateBuilder stateBuilder) {
+      // the source jar resolver isn't part of the key, it only looks at the projects of the session
+      final StringBuilder key = new StringBuilder();
+      key.append(OsgiStateSnapshots.computeKey(bundleLocations, stateBuilder.getPlatformProperties()));
+      key.append('|');
+      key.append(request.getWorkingDirectory());
+      key.append('|');
+      key.append(request.getTargetType());
+      key.append('|');
+      key.append(groupIdPrefix);
+      key.append('|');
+      key.append(trimQualifiers);
+      key.append('|');
+      if (group3Prefixes != null) {
+         key.append(new TreeSet<String>(group3Prefixes));
+      }
+      key.append('|');
+      key.append(groupIdMappings);
+      key.append('|');
+      key.append(new TreeMap<String, String>(request.getOptions()));
+      return key.toString();
    }
 
    private BundleFilter newInputFilter() {
@@ -265,8 +455,8 @@ public abstract class AbstractMavenizorMojo extends AbstractMojo {
          }
 
          private boolean isEclipseSourceBundle(BundleDescription bundle) {
-            final BundleManifest manifest = BundleAdapterFactory.DEFAULT.adapt(bundle, BundleManifest.class);
-            return manifest.getHeaderValue("Eclipse-SourceBundle") != null;
+            final BundleHeaders headers = BundleAdapterFactory.DEFAULT.adapt(bundle, BundleHeaders.class);
+            return headers.getHeaderValue("Eclipse-SourceBundle") != null;
          }
       };
    }
@@ -358,10 +548,63 @@ public abstract class AbstractMavenizorMojo extends AbstractMojo {
       return bundleLocationsInBuildScope;
    }
 
-   private State resolveState(final OsgiStateBuilder stateBuilder) {
+   private State resolveState(RunStatistics statistics, final OsgiStateBuilder stateBuilder) {
       // TODO report unresolved requirements
       final State state = stateBuilder.getState();
-      state.resolve(false);
+      final RunStatistics.Timer timer = statistics.start(Phase.STATE_RESOLUTION);
+      final MavenizorEvents.Event event = MavenizorEvents.begin(MavenizorEvents.Type.STATE_RESOLVE);
+      try {
+         state.resolve(false);
+      }
+      finally {
+         event.commit();
+         timer.stop();
+      }
+      return state;
+   }
+
+   private void addBundles(RunStatistics statistics, OsgiStateBuilder stateBuilder, List<File> bundleLocations) {
+      final RunStatistics.Timer timer = statistics.start(Phase.MANIFEST_PARSING);
+      final MavenizorEvents.Event event = MavenizorEvents.begin(MavenizorEvents.Type.STATE_BUILD);
+      final long bytesRead = stateBuilder.getBytesRead();
+      try {
+         for (File bundleLocation : bundleLocations) {
+            stateBuilder.addBundle(bundleLocation);
+         }
+      }
+      finally {
+         statistics.addBytesRead(stateBuilder.getBytesRead() - bytesRead);
+         event.commit();
+         timer.stop();
+      }
+   }
+
+   private State buildState(Mavenizor.Request request, OsgiStateBuilder stateBuilder, List<File> bundleLocations) {
+      final RunStatistics statistics = request.getStatistics();
+      if (!useStateSnapshot) {
+         addBundles(statistics, stateBuilder, bundleLocations);
+         return resolveState(statistics, stateBuilder);
+      }
+
+      final OsgiStateSnapshots snapshots = new OsgiStateSnapshots(new File(request.getWorkingDirectory(), "state"));
+      final String key = OsgiStateSnapshots.computeKey(bundleLocations, stateBuilder.getPlatformProperties());
+
+      final RunStatistics.Timer timer = statistics.start(Phase.STATE_RESOLUTION);
+      State state;
+      try {
+         state = snapshots.load(key);
+      }
+      finally {
+         timer.stop();
+      }
+      if (state == null) {
+         addBundles(statistics, stateBuilder, bundleLocations);
+         state = resolveState(statistics, stateBuilder);
+         snapshots.save(key, state);
+      }
+      else {
+         logger.info("Reusing resolved OSGi state " + key);
+      }
       return state;
    }
 
@@ -402,6 +645,11 @@ public abstract class AbstractMavenizorMojo extends AbstractMojo {
       request.setTargetType(determineTargetType());
       request.setGAVStrategy(newGAVStrategy());
       request.setInputFilter(newInputFilter());
+      request.setConversionThreads(conversionThreads);
+      if (useConversionCache) {
+         request.setConversionCache(new ConversionCache(new File(workingDir, "conversion-cache.properties")
+            .getAbsoluteFile(), conversionCacheHashContent));
+      }
       request.setSourceJarResolver(new SourceJarResolver() {
          public File resolveSource(BundleDescription bundle) {
             final File bundleJar = BundleAdapterFactory.DEFAULT.adapt(bundle, File.class);
@@ -463,11 +711,13 @@ public abstract class AbstractMavenizorMojo extends AbstractMojo {
       stateBuilder.addPlatformProperties(targetMap);
    }
 
-   private void addBundles(final OsgiStateBuilder stateBuilder) {
+   private List<File> resolveBundleLocations() {
+      final List<File> bundleLocations = new ArrayList<File>();
       bundleResolver.resolve(session, new Handler() {
          public void resolved(File bundleLocation) {
-            stateBuilder.addBundle(bundleLocation);
+            bundleLocations.add(bundleLocation);
          }
       });
+      return bundleLocations;
    }
 }
@@ -22,6 +22,17 @@ import static org.sourcepit.common.utils.io.IO.fileOut;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -30,14 +41,22 @@ import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.repository.layout.ArtifactRepositoryLayout;
 import org.apache.maven.model.Model;
 import org.apache.maven.model.io.ModelWriter;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.repository.RepositorySystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sourcepit.common.maven.model.MavenArtifact;
 import org.sourcepit.common.utils.io.IOOperation;
+import org.sourcepit.common.utils.lang.Exceptions;
 import org.sourcepit.mavenizor.ArtifactBundle;
+import org.sourcepit.mavenizor.MavenizorMetrics;
+import org.sourcepit.mavenizor.RunStatistics;
 import org.sourcepit.mavenizor.maven.converter.ConvertedArtifact;
 
 @Named
 public class ArtifactBundleDistributor {
+   private static final Logger LOG = LoggerFactory.getLogger(ArtifactBundleDistributor.class);
+
    @Inject
    private RepositorySystem repositorySystem;
 
@@ -48,25 +67,129 @@ public class ArtifactBundleDistributor {
    private ModelWriter modelWriter;
 
    interface DistributionHandler {
+      void prepare(Collection<Artifact> artifacts);
+
       void distribute(Artifact artifact, boolean forceOverwrite);
+
+      RunStatistics getStatistics();
+
+      MavenizorMetrics getMetrics();
+   }
+
+   public void distribute(final File workingDir, Collection<ArtifactBundle> artifactBundles,
+      final DistributionHandler distributor, final boolean forceOverwrite, int threads) {
+      if (!forceOverwrite) {
+         final List<Artifact> pomArtifacts = new ArrayList<Artifact>();
+         for (ArtifactBundle artifactBundle : artifactBundles) {
+            if (hasMavenizedArtifact(artifactBundle)) {
+               pomArtifacts.add(createArtifact(artifactBundle.getPom(), "pom"));
+            }
+         }
+         distributor.prepare(pomArtifacts);
+      }
+
+      if (threads < 2) {
+         for (ArtifactBundle artifactBundle : artifactBundles) {
+            distribute(workingDir, artifactBundle, distributor, forceOverwrite);
+         }
+         return;
+      }
+
+      // artifact bundles of the same GA share repository metadata, so they are distributed one after another
+      final Map<String, List<ArtifactBundle>> gaToArtifactBundlesMap = new LinkedHashMap<String, List<ArtifactBundle>>();
+      for (ArtifactBundle artifactBundle : artifactBundles) {
+         final Model pom = artifactBundle.getPom();
+         final String ga = pom.getGroupId() + ":" + pom.getArtifactId();
+         List<ArtifactBundle> gaArtifactBundles = gaToArtifactBundlesMap.get(ga);
+         if (gaArtifactBundles == null) {
+            gaArtifactBundles = new ArrayList<ArtifactBundle>();
+            gaToArtifactBundlesMap.put(ga, gaArtifactBundles);
+         }
+         gaArtifactBundles.add(artifactBundle);
+      }
+
+      final ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+         final Map<String, Future<Void>> gaToFutureMap = new LinkedHashMap<String, Future<Void>>();
+         for (Entry<String, List<ArtifactBundle>> entry : gaToArtifactBundlesMap.entrySet()) {
+            final List<ArtifactBundle> gaArtifactBundles = entry.getValue();
+            gaToFutureMap.put(entry.getKey(), executor.submit(new Callable<Void>() {
+               public Void call() throws Exception {
+                  for (ArtifactBundle artifactBundle : gaArtifactBundles) {
+                     distribute(workingDir, artifactBundle, distributor, forceOverwrite);
+                  }
+                  return null;
+               }
+            }));
+         }
+
+         Throwable firstFailure = null;
+         int failures = 0;
+         for (Entry<String, Future<Void>> entry : gaToFutureMap.entrySet()) {
+            try {
+               entry.getValue().get();
+            }
+            catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+               throw Exceptions.pipe(e);
+            }
+            catch (ExecutionException e) {
+               final Throwable cause = e.getCause();
+               LOG.error("Failed to distribute " + entry.getKey() + ": " + cause.getMessage(), cause);
+               if (firstFailure == null) {
+                  firstFailure = cause;
+               }
+               failures++;
+            }
+         }
+
+         if (firstFailure != null) {
+            throw Exceptions.pipe(new MojoExecutionException("Failed to distribute the artifact bundles of "
+               + failures + " of " + gaToFutureMap.size() + " groupId:artifactId groups. See build log for details.",
+               firstFailure));
+         }
+      }
+      finally {
+         executor.shutdownNow();
+      }
    }
 
    public void distribute(File workingDir, ArtifactBundle artifactBundle, DistributionHandler distributor,
       boolean forceOverwrite) {
+      final Model pom = artifactBundle.getPom();
+      final long start = System.nanoTime();
       boolean pomDistributed = false;
+      try {
+         for (ConvertedArtifact cArtifact : artifactBundle.getArtifacts()) {
+            if (cArtifact.isMavenized()) {
+               MavenArtifact mavenArtifact = cArtifact.getMavenArtifact();
+               if (!pomDistributed) {
+                  distributePom(workingDir, pom, distributor, forceOverwrite);
+                  pomDistributed = true;
+               }
+               final Artifact artifact = createArtifact(pom, mavenArtifact.getClassifier(), mavenArtifact.getType());
+               artifact.setFile(mavenArtifact.getFile());
+               distribute(distributor, artifact, forceOverwrite);
+            }
+         }
+      }
+      finally {
+         if (pomDistributed) {
+            final String gav = pom.getGroupId() + ":" + pom.getArtifactId() + ":" + pom.getVersion();
+            final long time = System.nanoTime() - start;
+            distributor.getStatistics().addArtifactBundleCost(gav, time);
+            distributor.getMetrics().recordTime("mavenizor_artifact_bundle_distribution_seconds", time);
+         }
+      }
+   }
+
+   private static boolean hasMavenizedArtifact(ArtifactBundle artifactBundle) {
       for (ConvertedArtifact cArtifact : artifactBundle.getArtifacts()) {
          if (cArtifact.isMavenized()) {
-            MavenArtifact mavenArtifact = cArtifact.getMavenArtifact();
-            final Model pom = artifactBundle.getPom();
-            if (!pomDistributed) {
-               distributePom(workingDir, pom, distributor, forceOverwrite);
-               pomDistributed = true;
-            }
-            final Artifact artifact = createArtifact(pom, mavenArtifact.getClassifier(), mavenArtifact.getType());
-            artifact.setFile(mavenArtifact.getFile());
-            distribute(distributor, artifact, forceOverwrite);
+            return true;
          }
       }
+      return false;
    }
 
    private void distributePom(File workinDir, final Model pom, DistributionHandler distributor, boolean forceOverwrite) {
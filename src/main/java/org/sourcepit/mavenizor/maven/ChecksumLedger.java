@@ -0,0 +1,152 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sourcepit.common.utils.props.LinkedPropertiesMap;
+import org.sourcepit.common.utils.props.PropertiesMap;
+
+public class ChecksumLedger {
+   private static class LedgerEntry {
+      private final long size;
+
+      private final long lastModified;
+
+      private final String sha1;
+
+      LedgerEntry(long size, long lastModified, String sha1) {
+         this.size = size;
+         this.lastModified = lastModified;
+         this.sha1 = sha1;
+      }
+
+      boolean isCurrent(File file) {
+         return size == file.length() && lastModified == file.lastModified();
+      }
+   }
+
+   private final File ledgerFile;
+
+   private final Map<String, LedgerEntry> entries = new HashMap<String, LedgerEntry>();
+
+   private final FileDigests fileDigests;
+
+   private boolean dirty;
+
+   private final AtomicLong hits = new AtomicLong();
+
+   private final AtomicLong misses = new AtomicLong();
+
+   public ChecksumLedger(File ledgerFile, FileDigests fileDigests) {
+      this.ledgerFile = ledgerFile;
+      this.fileDigests = fileDigests;
+   }
+
+   public File getLedgerFile() {
+      return ledgerFile;
+   }
+
+   public long getHits() {
+      return hits.get();
+   }
+
+   public long getMisses() {
+      return misses.get();
+   }
+
+   public synchronized void load() {
+      entries.clear();
+      dirty = false;
+      if (!ledgerFile.exists()) {
+         return;
+      }
+
+      final PropertiesMap properties = new LinkedPropertiesMap();
+      properties.load(ledgerFile);
+
+      for (Entry<String, String> property : properties.entrySet()) {
+         final String[] segments = property.getValue().split(";");
+         if (segments.length == 3) {
+            try {
+               final long size = Long.parseLong(segments[0]);
+               final long lastModified = Long.parseLong(segments[1]);
+               entries.put(property.getKey(), new LedgerEntry(size, lastModified, segments[2]));
+            }
+            catch (NumberFormatException e) {
+               // ignore corrupt entry, it gets recomputed
+            }
+         }
+      }
+   }
+
+   public synchronized void save() {
+      final Iterator<String> it = entries.keySet().iterator();
+      while (it.hasNext()) {
+         if (!new File(it.next()).exists()) {
+            it.remove();
+            dirty = true;
+         }
+      }
+
+      if (!dirty) {
+         return;
+      }
+
+      final PropertiesMap properties = new LinkedPropertiesMap();
+      for (Entry<String, LedgerEntry> entry : entries.entrySet()) {
+         final LedgerEntry ledgerEntry = entry.getValue();
+         properties.put(entry.getKey(), ledgerEntry.size + ";" + ledgerEntry.lastModified + ";" + ledgerEntry.sha1);
+      }
+
+      ledgerFile.getParentFile().mkdirs();
+      properties.store(ledgerFile);
+      dirty = false;
+   }
+
+   public String getSha1(File file) {
+      final String path = file.getAbsolutePath();
+      synchronized (this) {
+         final LedgerEntry entry = entries.get(path);
+         if (entry != null && entry.isCurrent(file)) {
+            hits.incrementAndGet();
+            return entry.sha1;
+         }
+      }
+      misses.incrementAndGet();
+
+      // stat before hashing, a file changing meanwhile is hashed again next time
+      final long size = file.length();
+      final long lastModified = file.lastModified();
+      final String sha1 = fileDigests.getDigest(file, FileDigests.SHA1);
+      synchronized (this) {
+         entries.put(path, new LedgerEntry(size, lastModified, sha1));
+         dirty = true;
+      }
+      return sha1;
+   }
+
+   public synchronized void update(File file, String sha1) {
+      entries.put(file.getAbsolutePath(), new LedgerEntry(file.length(), file.lastModified(), sha1));
+      dirty = true;
+   }
+}
@@ -19,9 +19,15 @@ package org.sourcepit.mavenizor.maven;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.apache.commons.io.IOUtils;
@@ -53,38 +59,67 @@ import org.eclipse.aether.transfer.NoRepositoryConnectorException;
 import org.eclipse.aether.util.ChecksumUtils;
 import org.slf4j.Logger;
 import org.sourcepit.common.utils.lang.Exceptions;
+import org.sourcepit.mavenizor.MavenizorEvents;
+import org.sourcepit.mavenizor.MavenizorEvents.Type;
 
 public final class DeploymentHandler extends AbstractDistributionHandler {
-   private final RepositoryConnectorProvider repositoryConnectorProvider;
+   private final RepositoryConnectorPool repositoryConnectorPool;
    private final RepositorySystemSession repositorySession;
    private final ArtifactDeployer deployer;
    private final ArtifactRepository localRepository;
    private final ArtifactRepository snapshotRepository;
    private final ArtifactRepository releaseRepository;
    private final MetadataResolver metadataResolver;
+   private final double requestsPerSecond;
+   private final Map<String, RequestThrottle> repositoryIdToThrottleMap = new HashMap<String, RequestThrottle>();
+   private final Map<String, String> snapshotVersionCache = new HashMap<String, String>();
 
    public DeploymentHandler(Logger log, RepositoryConnectorProvider repositoryConnectorProvider,
       RepositorySystemSession repositorySession, ArtifactDeployer deployer, ArtifactRepository localRepository,
-      ArtifactRepository snapshotRepository, ArtifactRepository releaseRepository, MetadataResolver metadataResolver) {
-      super(log);
-      this.repositoryConnectorProvider = repositoryConnectorProvider;
+      ArtifactRepository snapshotRepository, ArtifactRepository releaseRepository, MetadataResolver metadataResolver,
+      FileDigests fileDigests, double requestsPerSecond) {
+      super(log, fileDigests);
+      this.repositoryConnectorPool = new RepositoryConnectorPool(repositoryConnectorProvider, repositorySession);
       this.repositorySession = repositorySession;
       this.deployer = deployer;
       this.localRepository = localRepository;
       this.snapshotRepository = snapshotRepository;
       this.releaseRepository = releaseRepository;
       this.metadataResolver = metadataResolver;
+      this.requestsPerSecond = requestsPerSecond;
    }
 
    @Override
    protected void doDistribute(Artifact artifact) {
       final ArtifactRepository deploymentRepository = determineDeploymentRepository(artifact);
+      if (artifact.getVersion().endsWith("-SNAPSHOT")) {
+         // the deployment creates a new snapshot version
+         synchronized (snapshotVersionCache) {
+            snapshotVersionCache.remove(toSnapshotKey(deploymentRepository.getId(), artifact.getGroupId(),
+               artifact.getArtifactId(), artifact.getVersion()));
+         }
+      }
+      throttle(deploymentRepository.getId());
+      final long bytes = artifact.getFile().length();
+      final MavenizorEvents.Event event = MavenizorEvents.begin(Type.ARTIFACT_UPLOAD);
+      final long start = System.nanoTime();
       try {
          deployer.deploy(artifact.getFile(), artifact, deploymentRepository, localRepository);
       }
       catch (ArtifactDeploymentException e) {
          throw Exceptions.pipe(e);
       }
+      finally {
+         getMetrics().recordTime("mavenizor_upload_seconds", System.nanoTime() - start, "repository",
+            deploymentRepository.getId());
+         event.setGav(artifact.getId()).setBytes(bytes).commit();
+      }
+      getStatistics().addBytesUploaded(bytes);
+   }
+
+   @Override
+   public void close() {
+      repositoryConnectorPool.close();
    }
 
    @Override
@@ -107,6 +142,7 @@ public final class DeploymentHandler extends AbstractDistributionHandler {
          + UUID.randomUUID().toString();
 
       final File sha1File = new File(localRepository.getBasedir(), sha1Path);
+      final MavenizorEvents.Event event = MavenizorEvents.begin(Type.REMOTE_CHECKSUM_LOOKUP);
       try {
          final ArtifactDownload download = new ArtifactDownload();
          download.setArtifact(sha1Artifact);
@@ -122,6 +158,7 @@ public final class DeploymentHandler extends AbstractDistributionHandler {
          throw Exceptions.pipe(e);
       }
       finally {
+         event.setGav(artifact.toString()).setBytes(sha1File.length()).commit();
          sha1File.delete();
       }
 
@@ -129,9 +166,10 @@ public final class DeploymentHandler extends AbstractDistributionHandler {
 
    private void download(RemoteRepository remoteRepository, final ArtifactDownload download)
       throws ArtifactNotFoundException {
-      RepositoryConnector connector = null;
+      throttle(remoteRepository.getId());
+      final RepositoryConnector connector;
       try {
-         connector = repositoryConnectorProvider.newRepositoryConnector(repositorySession, remoteRepository);
+         connector = repositoryConnectorPool.acquire(remoteRepository);
       }
       catch (NoRepositoryConnectorException e) {
          throw Exceptions.pipe(e);
@@ -151,9 +189,7 @@ public final class DeploymentHandler extends AbstractDistributionHandler {
          throw Exceptions.pipe(e);
       }
       finally {
-         if (connector != null) {
-            connector.close();
-         }
+         repositoryConnectorPool.release(remoteRepository, connector);
       }
    }
 
@@ -174,29 +210,117 @@ public final class DeploymentHandler extends AbstractDistributionHandler {
    private String expandSnapshotVersion(final RemoteRepository remoteRepo, String groupId, String artifactId,
       String version) {
       if (version.endsWith("-SNAPSHOT")) {
+         final String key = toSnapshotKey(remoteRepo.getId(), groupId, artifactId, version);
+         synchronized (snapshotVersionCache) {
+            final String snapshotVersion = snapshotVersionCache.get(key);
+            if (snapshotVersion != null) {
+               return snapshotVersion;
+            }
+         }
+
+         String snapshotVersion = version;
          try {
-            final Metadata metadata = resolveMetadata(new DefaultMetadata(groupId, artifactId, version,
-               "maven-metadata.xml", Metadata.Nature.SNAPSHOT), remoteRepo);
+            final Metadata metadata = resolveMetadata(newSnapshotMetadata(groupId, artifactId, version), remoteRepo);
+            snapshotVersion = toSnapshotVersion(version, metadata.getFile());
+         }
+         catch (MetadataNotFoundException e) {
+         }
 
-            File file = metadata.getFile();
+         synchronized (snapshotVersionCache) {
+            snapshotVersionCache.put(key, snapshotVersion);
+         }
+         return snapshotVersion;
+      }
+      return version;
+   }
 
-            final org.apache.maven.artifact.repository.metadata.Metadata mavenMetadata = readMavenMetadata(file);
+   @Override
+   public void prepare(Collection<Artifact> artifacts) {
+      // resolve the snapshot metadata of all pending GAVs at once
+      final List<MetadataRequest> requests = new ArrayList<MetadataRequest>();
+      final List<String> keys = new ArrayList<String>();
+      final Set<String> pendingKeys = new HashSet<String>();
+      for (Artifact artifact : artifacts) {
+         final String version = artifact.getVersion();
+         if (!version.endsWith("-SNAPSHOT")) {
+            continue;
+         }
 
-            final Versioning versioning = mavenMetadata.getVersioning();
-            if (versioning != null) {
-               Snapshot snapshot = versioning.getSnapshot();
-               if (snapshot != null) {
-                  String qualifier = snapshot.getTimestamp() + "-" + snapshot.getBuildNumber();
-                  return version.substring(0, version.length() - "-SNAPSHOT".length() + 1) + qualifier;
-               }
+         final RemoteRepository remoteRepo = RepositoryUtils.toRepo(determineDeploymentRepository(artifact));
+         final String key = toSnapshotKey(remoteRepo.getId(), artifact.getGroupId(), artifact.getArtifactId(), version);
+         synchronized (snapshotVersionCache) {
+            if (snapshotVersionCache.containsKey(key) || !pendingKeys.add(key)) {
+               continue;
             }
          }
-         catch (MetadataNotFoundException e) {
+
+         keys.add(key);
+         requests.add(newMetadataRequest(newSnapshotMetadata(artifact.getGroupId(), artifact.getArtifactId(), version),
+            remoteRepo));
+      }
+
+      if (requests.isEmpty()) {
+         return;
+      }
+
+      final List<MetadataResult> metadataResults;
+      if (requestsPerSecond > 0) {
+         // the resolver fires a batch as a burst, so a throttled run issues the requests one by one
+         metadataResults = new ArrayList<MetadataResult>(requests.size());
+         for (MetadataRequest request : requests) {
+            throttle(request.getRepository().getId());
+            metadataResults.addAll(metadataResolver.resolveMetadata(repositorySession,
+               Collections.singletonList(request)));
+         }
+      }
+      else {
+         metadataResults = metadataResolver.resolveMetadata(repositorySession, requests);
+      }
+      for (int i = 0; i < metadataResults.size(); i++) {
+         final MetadataResult metadataResult = metadataResults.get(i);
+         final Exception exception = metadataResult.getException();
+         final String version = metadataResult.getRequest().getMetadata().getVersion();
+
+         final String snapshotVersion;
+         if (exception instanceof MetadataNotFoundException) {
+            snapshotVersion = version;
+         }
+         else if (exception == null) {
+            snapshotVersion = toSnapshotVersion(version, metadataResult.getMetadata().getFile());
+         }
+         else {
+            // leave it to the lookup of the artifact to report the error
+            continue;
+         }
+
+         synchronized (snapshotVersionCache) {
+            snapshotVersionCache.put(keys.get(i), snapshotVersion);
+         }
+      }
+   }
+
+   private static Metadata newSnapshotMetadata(String groupId, String artifactId, String version) {
+      return new DefaultMetadata(groupId, artifactId, version, "maven-metadata.xml", Metadata.Nature.SNAPSHOT);
+   }
+
+   private String toSnapshotVersion(String version, File metadataFile) {
+      final org.apache.maven.artifact.repository.metadata.Metadata mavenMetadata = readMavenMetadata(metadataFile);
+
+      final Versioning versioning = mavenMetadata.getVersioning();
+      if (versioning != null) {
+         Snapshot snapshot = versioning.getSnapshot();
+         if (snapshot != null) {
+            String qualifier = snapshot.getTimestamp() + "-" + snapshot.getBuildNumber();
+            return version.substring(0, version.length() - "-SNAPSHOT".length() + 1) + qualifier;
          }
       }
       return version;
    }
 
+   private static String toSnapshotKey(String repositoryId, String groupId, String artifactId, String version) {
+      return repositoryId + "/" + groupId + ":" + artifactId + ":" + version;
+   }
+
    private org.apache.maven.artifact.repository.metadata.Metadata readMavenMetadata(File file) {
       FileInputStream fis = null;
       try {
@@ -213,11 +337,8 @@ public final class DeploymentHandler extends AbstractDistributionHandler {
 
    private Metadata resolveMetadata(Metadata metadata, RemoteRepository remoteRepository)
       throws MetadataNotFoundException {
-      final MetadataRequest request = new MetadataRequest();
-      request.setMetadata(metadata);
-      request.setRepository(remoteRepository);
-      request.setDeleteLocalCopyIfMissing(true);
-      request.setFavorLocalRepository(false);
+      throttle(remoteRepository.getId());
+      final MetadataRequest request = newMetadataRequest(metadata, remoteRepository);
 
       final List<MetadataResult> metadataResults = metadataResolver.resolveMetadata(repositorySession,
          Arrays.asList(request));
@@ -235,6 +356,30 @@ public final class DeploymentHandler extends AbstractDistributionHandler {
       return metadataResult.getMetadata();
    }
 
+   private static MetadataRequest newMetadataRequest(Metadata metadata, RemoteRepository remoteRepository) {
+      final MetadataRequest request = new MetadataRequest();
+      request.setMetadata(metadata);
+      request.setRepository(remoteRepository);
+      request.setDeleteLocalCopyIfMissing(true);
+      request.setFavorLocalRepository(false);
+      return request;
+   }
+
+   private void throttle(String repositoryId) {
+      if (requestsPerSecond <= 0) {
+         return;
+      }
+      RequestThrottle throttle;
+      synchronized (repositoryIdToThrottleMap) {
+         throttle = repositoryIdToThrottleMap.get(repositoryId);
+         if (throttle == null) {
+            throttle = new RequestThrottle(requestsPerSecond);
+            repositoryIdToThrottleMap.put(repositoryId, throttle);
+         }
+      }
+      throttle.acquire();
+   }
+
    private ArtifactRepository determineDeploymentRepository(Artifact artifact) {
       final ArtifactRepository deploymentRepository;
       if (ArtifactUtils.isSnapshot(artifact.getVersion())) {
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven;
+
+import static org.sourcepit.common.utils.io.IO.fileIn;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sourcepit.common.utils.io.IOOperation;
+import org.sourcepit.common.utils.lang.Exceptions;
+import org.sourcepit.mavenizor.MavenizorEvents;
+import org.sourcepit.mavenizor.MavenizorEvents.Type;
+
+public class FileDigests {
+   public static final String MD5 = "MD5";
+
+   public static final String SHA1 = "SHA-1";
+
+   public static final String SHA256 = "SHA-256";
+
+   public static final String SHA512 = "SHA-512";
+
+   private static final List<String> ALGORITHMS = Collections.unmodifiableList(Arrays.asList(MD5, SHA1, SHA256,
+      SHA512));
+
+   private static final int BUFFER_SIZE = 64 * 1024;
+
+   private static class Digests {
+      private final long size;
+
+      private final long lastModified;
+
+      private final Map<String, String> algorithmToDigestMap = new HashMap<String, String>();
+
+      Digests(long size, long lastModified) {
+         this.size = size;
+         this.lastModified = lastModified;
+      }
+   }
+
+   private final Map<File, Digests> fileToDigestsMap = new HashMap<File, Digests>();
+
+   private final AtomicLong bytesRead = new AtomicLong();
+
+   private final AtomicLong cacheHits = new AtomicLong();
+
+   private final AtomicLong cacheMisses = new AtomicLong();
+
+   public long getBytesRead() {
+      return bytesRead.get();
+   }
+
+   public long getCacheHits() {
+      return cacheHits.get();
+   }
+
+   public long getCacheMisses() {
+      return cacheMisses.get();
+   }
+
+   public String getDigest(File file, String algorithm) {
+      if (!ALGORITHMS.contains(algorithm)) {
+         throw new IllegalArgumentException("Unsupported digest algorithm " + algorithm);
+      }
+
+      final File key = file.getAbsoluteFile();
+      final long size = key.length();
+      final long lastModified = key.lastModified();
+
+      // digests are computed lazily per algorithm and dropped as soon as size or mtime change
+      synchronized (fileToDigestsMap) {
+         Digests digests = fileToDigestsMap.get(key);
+         if (digests == null || digests.size != size || digests.lastModified != lastModified) {
+            digests = new Digests(size, lastModified);
+            fileToDigestsMap.put(key, digests);
+         }
+         final String digest = digests.algorithmToDigestMap.get(algorithm);
+         if (digest != null) {
+            cacheHits.incrementAndGet();
+            return digest;
+         }
+      }
+
+      cacheMisses.incrementAndGet();
+      final String digest = compute(key, algorithm);
+      synchronized (fileToDigestsMap) {
+         final Digests digests = fileToDigestsMap.get(key);
+         if (digests != null && digests.size == size && digests.lastModified == lastModified) {
+            digests.algorithmToDigestMap.put(algorithm, digest);
+         }
+      }
+      return digest;
+   }
+
+   private String compute(File file, String algorithm) {
+      final MessageDigest digest;
+      try {
+         digest = MessageDigest.getInstance(algorithm);
+      }
+      catch (NoSuchAlgorithmException e) {
+         throw Exceptions.pipe(e);
+      }
+
+      final MavenizorEvents.Event event = MavenizorEvents.begin(Type.CHECKSUM);
+      final long[] size = new long[1];
+      try {
+         new IOOperation<InputStream>(fileIn(file)) {
+            @Override
+            protected void run(InputStream in) throws IOException {
+               final byte[] buffer = new byte[BUFFER_SIZE];
+               for (int read = in.read(buffer); read > -1; read = in.read(buffer)) {
+                  digest.update(buffer, 0, read);
+                  size[0] += read;
+               }
+            }
+         }.run();
+      }
+      finally {
+         bytesRead.addAndGet(size[0]);
+         event.setBytes(size[0]).commit();
+      }
+      return toHexString(digest.digest());
+   }
+
+   private static String toHexString(byte[] bytes) {
+      final StringBuilder sb = new StringBuilder(bytes.length * 2);
+      for (byte b : bytes) {
+         sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+         sb.append(Character.forDigit(b & 0xF, 16));
+      }
+      return sb.toString();
+   }
+}
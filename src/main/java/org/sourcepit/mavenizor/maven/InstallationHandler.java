@@ -17,6 +17,11 @@
 package org.sourcepit.mavenizor.maven;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.installer.ArtifactInstallationException;
@@ -30,32 +35,139 @@ public class InstallationHandler extends AbstractDistributionHandler {
 
    private final ArtifactRepository localRepository;
 
-   public InstallationHandler(Logger log, ArtifactInstaller installer, ArtifactRepository localRepository) {
-      super(log);
+   private final ChecksumLedger checksumLedger;
+
+   private final boolean useHardLinks;
+
+   public InstallationHandler(Logger log, ArtifactInstaller installer, ArtifactRepository localRepository,
+      FileDigests fileDigests, ChecksumLedger checksumLedger, boolean useHardLinks) {
+      super(log, fileDigests);
       this.localRepository = localRepository;
       this.installer = installer;
+      this.checksumLedger = checksumLedger;
+      this.useHardLinks = useHardLinks;
+      if (checksumLedger != null) {
+         checksumLedger.load();
+      }
    }
 
    @Override
    protected void doDistribute(Artifact artifact) {
+      // POMs are always copied by the installer, which would write through the link into the source
+      boolean linked = false;
+      if (useHardLinks && !"pom".equals(artifact.getArtifactHandler().getExtension())) {
+         linked = link(artifact.getFile(), getTargetFile(artifact));
+      }
+      if (useHardLinks && !linked) {
+         unlink(artifact.getFile(), getTargetFile(artifact));
+      }
       try {
          installer.install(artifact.getFile(), artifact, localRepository);
       }
       catch (ArtifactInstallationException e) {
          throw Exceptions.pipe(e);
       }
+      if (!linked) {
+         getStatistics().addBytesCopied(artifact.getFile().length());
+      }
+      if (checksumLedger != null) {
+         // the installed file is a copy of the local one
+         checksumLedger.update(getTargetFile(artifact), checksumLedger.getSha1(artifact.getFile()));
+      }
+   }
+
+   @Override
+   public void close() {
+      if (checksumLedger != null) {
+         checksumLedger.save();
+         getMetrics().increment("mavenizor_checksum_ledger_hits_total", checksumLedger.getHits());
+         getMetrics().increment("mavenizor_checksum_ledger_misses_total", checksumLedger.getMisses());
+      }
    }
 
    @Override
    protected String getLocalChecksum(Artifact artifact) {
-      return calc(artifact.getFile(), "SHA-1");
+      return sha1(artifact.getFile());
    }
 
    @Override
    protected String getTargetChecksum(Artifact artifact) {
+      final File targetFile = getTargetFile(artifact);
+      return targetFile.exists() ? sha1(targetFile) : null;
+   }
+
+   private boolean link(File source, File target) {
+      // the installer skips copying when size and mtime of the target match, which is the case for a hard link
+      final Path sourcePath = source.toPath().toAbsolutePath();
+      final Path targetPath = target.toPath().toAbsolutePath();
+      try {
+         if (target.exists() && Files.isSameFile(sourcePath, targetPath)) {
+            return true;
+         }
+         Files.createDirectories(targetPath.getParent());
+         final Path linkPath = targetPath.resolveSibling(target.getName() + "." + UUID.randomUUID() + ".tmp");
+         createLink(linkPath, sourcePath);
+         try {
+            Files.move(linkPath, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+         }
+         finally {
+            Files.deleteIfExists(linkPath);
+         }
+         return true;
+      }
+      catch (IOException e) {
+         getLog().debug("Cannot link " + target + " to " + source + ", falling back to copy: " + e.getMessage());
+      }
+      catch (UnsupportedOperationException e) {
+         getLog().debug("Cannot link " + target + " to " + source + ", falling back to copy: " + e.getMessage());
+      }
+      return false;
+   }
+
+   void createLink(Path link, Path existing) throws IOException {
+      Files.createLink(link, existing);
+   }
+
+   private void unlink(File source, File target) {
+      // the installer writes into an existing target, which would modify every file hard linked to it
+      final Path sourcePath = source.toPath().toAbsolutePath();
+      final Path targetPath = target.toPath().toAbsolutePath();
+      try {
+         if (isHardLinked(targetPath) && !Files.isSameFile(sourcePath, targetPath)) {
+            Files.delete(targetPath);
+         }
+      }
+      catch (IOException e) {
+         throw Exceptions.pipe(e);
+      }
+   }
+
+   private boolean isHardLinked(Path path) throws IOException {
+      if (!Files.exists(path)) {
+         return false;
+      }
+      final Object linkCount;
+      try {
+         linkCount = Files.getAttribute(path, "unix:nlink");
+      }
+      catch (UnsupportedOperationException e) {
+         getLog().debug("Cannot determine link count of " + path + ": " + e.getMessage());
+         return false;
+      }
+      catch (IllegalArgumentException e) {
+         getLog().debug("Cannot determine link count of " + path + ": " + e.getMessage());
+         return false;
+      }
+      return linkCount instanceof Integer && ((Integer) linkCount).intValue() > 1;
+   }
+
+   private File getTargetFile(Artifact artifact) {
       final String basedir = localRepository.getBasedir();
       final String path = localRepository.pathOf(artifact);
-      final File targetFile = new File(basedir, path);
-      return targetFile.exists() ? calc(targetFile, "SHA-1") : null;
+      return new File(basedir, path);
+   }
+
+   private String sha1(File file) {
+      return checksumLedger == null ? calc(file, "SHA-1") : checksumLedger.getSha1(file);
    }
-}
\ No newline at end of file
+}
@@ -50,6 +50,9 @@ public class MavenizorDeployMojo extends AbstractDistributingMavenizorMojo {
    @Parameter(property = "altDeploymentRepository")
    private String altDeploymentRepository;
 
+   @Parameter(property = "deploymentRequestsPerSecond", defaultValue = "0")
+   private double deploymentRequestsPerSecond;
+
    @Inject
    private MetadataResolver metadataResolver;
 
@@ -68,7 +71,8 @@ public class MavenizorDeployMojo extends AbstractDistributingMavenizorMojo {
          releaseRepository = deploymentRepository;
       }
       return new DeploymentHandler(logger, repositoryConnectorProvider, session.getRepositorySession(), deployer,
-         localRepository, snapshotRepository, releaseRepository, metadataResolver);
+         localRepository, snapshotRepository, releaseRepository, metadataResolver, new FileDigests(),
+         deploymentRequestsPerSecond);
    }
 
    protected ArtifactRepository getSnapshotRepository() {
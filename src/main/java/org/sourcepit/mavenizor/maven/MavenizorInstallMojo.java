@@ -16,6 +16,7 @@
 
 package org.sourcepit.mavenizor.maven;
 
+import java.io.File;
 
 import javax.inject.Inject;
 
@@ -23,6 +24,7 @@ import org.apache.maven.artifact.installer.ArtifactInstaller;
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 
 /**
@@ -33,9 +35,25 @@ public class MavenizorInstallMojo extends AbstractDistributingMavenizorMojo {
    @Inject
    private ArtifactInstaller installer;
 
+   @Parameter(property = "useChecksumLedger", defaultValue = "false")
+   private boolean useChecksumLedger;
+
+   @Parameter(property = "useHardLinks", defaultValue = "false")
+   private boolean useHardLinks;
+
    @Override
    protected AbstractDistributionHandler getDistributionHandler() {
       final ArtifactRepository localRepository = getLocalRepository();
-      return new InstallationHandler(logger, installer, localRepository);
+      final FileDigests fileDigests = new FileDigests();
+      final ChecksumLedger checksumLedger;
+      if (useChecksumLedger) {
+         checksumLedger = new ChecksumLedger(new File(workingDir, "checksum-ledger.properties").getAbsoluteFile(),
+            fileDigests);
+      }
+      else {
+         checksumLedger = null;
+      }
+      return new InstallationHandler(logger, installer, localRepository, fileDigests, checksumLedger,
+         useHardLinks);
    }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.impl.RepositoryConnectorProvider;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.eclipse.aether.transfer.NoRepositoryConnectorException;
+
+public class RepositoryConnectorPool {
+   private final RepositoryConnectorProvider repositoryConnectorProvider;
+
+   private final RepositorySystemSession repositorySession;
+
+   private final Map<RemoteRepository, LinkedList<RepositoryConnector>> idleConnectors = new HashMap<RemoteRepository, LinkedList<RepositoryConnector>>();
+
+   private final List<RepositoryConnector> connectors = new ArrayList<RepositoryConnector>();
+
+   private boolean closed;
+
+   public RepositoryConnectorPool(RepositoryConnectorProvider repositoryConnectorProvider,
+      RepositorySystemSession repositorySession) {
+      this.repositoryConnectorProvider = repositoryConnectorProvider;
+      this.repositorySession = repositorySession;
+   }
+
+   public RepositoryConnector acquire(RemoteRepository repository) throws NoRepositoryConnectorException {
+      synchronized (this) {
+         if (closed) {
+            throw new IllegalStateException("Connector pool is closed");
+         }
+         final LinkedList<RepositoryConnector> idle = idleConnectors.get(repository);
+         if (idle != null && !idle.isEmpty()) {
+            return idle.removeFirst();
+         }
+      }
+
+      // a connector is used by one thread at a time, concurrent lookups get their own
+      final RepositoryConnector connector = repositoryConnectorProvider.newRepositoryConnector(repositorySession,
+         repository);
+      synchronized (this) {
+         if (closed) {
+            connector.close();
+            throw new IllegalStateException("Connector pool is closed");
+         }
+         connectors.add(connector);
+      }
+      return connector;
+   }
+
+   public synchronized void release(RemoteRepository repository, RepositoryConnector connector) {
+      if (closed) {
+         // already closed along with the pool
+         return;
+      }
+      LinkedList<RepositoryConnector> idle = idleConnectors.get(repository);
+      if (idle == null) {
+         idle = new LinkedList<RepositoryConnector>();
+         idleConnectors.put(repository, idle);
+      }
+      idle.addFirst(connector);
+   }
+
+   public synchronized void close() {
+      if (closed) {
+         return;
+      }
+      closed = true;
+      idleConnectors.clear();
+      for (RepositoryConnector connector : connectors) {
+         connector.close();
+      }
+      connectors.clear();
+   }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven;
+
+import java.util.concurrent.TimeUnit;
+
+import org.sourcepit.common.utils.lang.Exceptions;
+
+public class RequestThrottle {
+   private final long intervalNanos;
+
+   private long nextRequestNanos;
+
+   public RequestThrottle(double requestsPerSecond) {
+      if (requestsPerSecond <= 0) {
+         throw new IllegalArgumentException("Requests per second must be greater than 0");
+      }
+      this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+      this.nextRequestNanos = System.nanoTime();
+   }
+
+   public void acquire() {
+      final long waitNanos;
+      synchronized (this) {
+         final long now = System.nanoTime();
+         final long requestNanos = Math.max(now, nextRequestNanos);
+         nextRequestNanos = requestNanos + intervalNanos;
+         waitNanos = requestNanos - now;
+      }
+      if (waitNanos > 0) {
+         try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+         }
+         catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Exceptions.pipe(e);
+         }
+      }
+   }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.sourcepit.common.utils.lang.Exceptions;
+import org.sourcepit.mavenizor.Mavenizor.Result;
+
+@Named
+@Singleton
+public class SharedMavenizorResults {
+   // parallel builds hand a clone of the session to each module, but all clones share the execution request, which is
+   // dropped when the build ends
+   private final Map<MavenExecutionRequest, Map<String, FutureTask<Result>>> requestToResultsMap = new WeakHashMap<MavenExecutionRequest, Map<String, FutureTask<Result>>>();
+
+   public Result getOrCompute(MavenSession session, String key, Callable<Result> computation) {
+      final FutureTask<Result> result;
+      final boolean compute;
+      synchronized (this) {
+         final MavenExecutionRequest request = session.getRequest();
+         Map<String, FutureTask<Result>> results = requestToResultsMap.get(request);
+         if (results == null) {
+            results = new HashMap<String, FutureTask<Result>>();
+            requestToResultsMap.put(request, results);
+         }
+
+         final FutureTask<Result> existing = results.get(key);
+         compute = existing == null;
+         if (compute) {
+            result = new FutureTask<Result>(computation);
+            results.put(key, result);
+         }
+         else {
+            result = existing;
+         }
+      }
+
+      // computed by the first caller without holding the lock, callers of the same key wait for it
+      if (compute) {
+         result.run();
+      }
+      try {
+         return result.get();
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw Exceptions.pipe(e);
+      }
+      catch (ExecutionException e) {
+         final Throwable cause = e.getCause();
+         if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+         }
+         if (cause instanceof Error) {
+            throw (Error) cause;
+         }
+         throw Exceptions.pipe((Exception) cause);
+      }
+   }
+}
@@ -23,7 +23,10 @@ import java.util.List;
 import org.eclipse.osgi.service.resolver.BundleDescription;
 import org.sourcepit.common.utils.path.Path;
 import org.sourcepit.common.utils.props.PropertiesMap;
+import org.sourcepit.mavenizor.DefaultMavenizorMetrics;
 import org.sourcepit.mavenizor.Mavenizor.TargetType;
+import org.sourcepit.mavenizor.MavenizorMetrics;
+import org.sourcepit.mavenizor.RunStatistics;
 
 public interface BundleConverter {
    class Request {
@@ -32,6 +35,9 @@ public interface BundleConverter {
       private TargetType targetType;
       private GAVStrategy gavStrategy;
       private PropertiesMap options;
+      private ConversionCache conversionCache;
+      private RunStatistics statistics = new RunStatistics();
+      private MavenizorMetrics metrics = new DefaultMavenizorMetrics();
 
       public TargetType getTargetType() {
          return targetType;
@@ -72,6 +78,30 @@ public interface BundleConverter {
       public void setWorkingDirectory(File workingDir) {
          this.workingDir = workingDir;
       }
+
+      public ConversionCache getConversionCache() {
+         return conversionCache;
+      }
+
+      public void setConversionCache(ConversionCache conversionCache) {
+         this.conversionCache = conversionCache;
+      }
+
+      public RunStatistics getStatistics() {
+         return statistics;
+      }
+
+      public void setStatistics(RunStatistics statistics) {
+         this.statistics = statistics;
+      }
+
+      public MavenizorMetrics getMetrics() {
+         return metrics;
+      }
+
+      public void setMetrics(MavenizorMetrics metrics) {
+         this.metrics = metrics;
+      }
    }
 
    class Result {
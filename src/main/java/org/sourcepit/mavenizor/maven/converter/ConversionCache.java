@@ -0,0 +1,274 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven.converter;
+
+import static org.sourcepit.common.utils.io.IO.buffIn;
+import static org.sourcepit.common.utils.io.IO.fileIn;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.sourcepit.common.utils.io.IOOperation;
+import org.sourcepit.common.utils.lang.Exceptions;
+import org.sourcepit.common.utils.props.LinkedPropertiesMap;
+import org.sourcepit.common.utils.props.PropertiesMap;
+import org.sourcepit.mavenizor.RunStatistics;
+
+public class ConversionCache {
+   private static final String FINGERPRINT = "#fingerprint";
+
+   private static final String PACKAGING = "#packaging";
+
+   private static final String POM_PROPERTY = "#pom.";
+
+   // bump whenever the persisted entries change, caches of other formats are discarded
+   private static final String FORMAT_KEY = "cache.format";
+
+   private static final String FORMAT = "2";
+
+   private static class CacheEntry {
+      private final File file;
+
+      private final String fingerprint;
+
+      private final MavenMetaData metaData;
+
+      CacheEntry(File file, String fingerprint, MavenMetaData metaData) {
+         this.file = file;
+         this.fingerprint = fingerprint;
+         this.metaData = metaData;
+      }
+   }
+
+   private final File cacheFile;
+
+   private final boolean hashContent;
+
+   private final Map<String, CacheEntry> entries = new HashMap<String, CacheEntry>();
+
+   // not guarded by the cache lock, fingerprints are computed outside of it
+   private final ConcurrentMap<File, String> fingerprints = new ConcurrentHashMap<File, String>();
+
+   private boolean dirty;
+
+   private RunStatistics statistics = new RunStatistics();
+
+   public ConversionCache(File cacheFile, boolean hashContent) {
+      this.cacheFile = cacheFile;
+      this.hashContent = hashContent;
+   }
+
+   public File getCacheFile() {
+      return cacheFile;
+   }
+
+   public RunStatistics getStatistics() {
+      return statistics;
+   }
+
+   public void setStatistics(RunStatistics statistics) {
+      this.statistics = statistics;
+   }
+
+   public synchronized void load() {
+      entries.clear();
+      fingerprints.clear();
+      dirty = false;
+      if (!cacheFile.exists()) {
+         return;
+      }
+
+      final PropertiesMap properties = new LinkedPropertiesMap();
+      properties.load(cacheFile);
+      statistics.addBytesRead(cacheFile.length());
+      if (!FORMAT.equals(properties.get(FORMAT_KEY))) {
+         dirty = true;
+         return;
+      }
+
+      final Map<String, PropertiesMap> cacheKeyToPomPropertiesMap = new HashMap<String, PropertiesMap>();
+      for (Entry<String, String> property : properties.entrySet()) {
+         final String key = property.getKey();
+         final int idx = key.lastIndexOf(POM_PROPERTY);
+         if (idx > -1) {
+            final String cacheKey = key.substring(0, idx);
+            PropertiesMap pomProperties = cacheKeyToPomPropertiesMap.get(cacheKey);
+            if (pomProperties == null) {
+               pomProperties = new LinkedPropertiesMap();
+               cacheKeyToPomPropertiesMap.put(cacheKey, pomProperties);
+            }
+            pomProperties.put(key.substring(idx + POM_PROPERTY.length()), property.getValue());
+         }
+      }
+
+      for (Entry<String, String> property : properties.entrySet()) {
+         final String key = property.getKey();
+         if (!key.endsWith(FINGERPRINT)) {
+            continue;
+         }
+
+         final String cacheKey = key.substring(0, key.length() - FINGERPRINT.length());
+         final String packaging = properties.get(cacheKey + PACKAGING);
+
+         PropertiesMap pomProperties = cacheKeyToPomPropertiesMap.get(cacheKey);
+         if (pomProperties == null) {
+            pomProperties = new LinkedPropertiesMap();
+         }
+
+         final MavenMetaData metaData = new MavenMetaData(packaging, pomProperties);
+         entries.put(cacheKey, new CacheEntry(toFile(cacheKey), property.getValue(), metaData));
+      }
+   }
+
+   public synchronized void save() {
+      // drop entries of jars that have disappeared since they were cached
+      final Iterator<CacheEntry> it = entries.values().iterator();
+      while (it.hasNext()) {
+         if (!it.next().file.exists()) {
+            it.remove();
+            dirty = true;
+         }
+      }
+
+      if (!dirty) {
+         return;
+      }
+
+      final PropertiesMap properties = new LinkedPropertiesMap();
+      properties.put(FORMAT_KEY, FORMAT);
+      for (Entry<String, CacheEntry> entry : entries.entrySet()) {
+         final String cacheKey = entry.getKey();
+         final CacheEntry cacheEntry = entry.getValue();
+         properties.put(cacheKey + FINGERPRINT, cacheEntry.fingerprint);
+
+         final MavenMetaData metaData = cacheEntry.metaData;
+         if (metaData.getPackaging() != null) {
+            properties.put(cacheKey + PACKAGING, metaData.getPackaging());
+         }
+
+         for (Entry<String, String> pomProperty : metaData.getPomProperties().entrySet()) {
+            properties.put(cacheKey + POM_PROPERTY + pomProperty.getKey(), pomProperty.getValue());
+         }
+      }
+
+      cacheFile.getParentFile().mkdirs();
+      properties.store(cacheFile);
+      dirty = false;
+   }
+
+   public MavenMetaData get(File jarFile, String entryPath) {
+      final String cacheKey = toCacheKey(jarFile, entryPath);
+      final CacheEntry cacheEntry;
+      synchronized (this) {
+         cacheEntry = entries.get(cacheKey);
+      }
+      if (cacheEntry == null) {
+         return null;
+      }
+      if (!cacheEntry.fingerprint.equals(fingerprint(jarFile))) {
+         synchronized (this) {
+            if (entries.get(cacheKey) == cacheEntry) {
+               entries.remove(cacheKey);
+               dirty = true;
+            }
+         }
+         return null;
+      }
+      return cacheEntry.metaData;
+   }
+
+   public void put(File jarFile, String entryPath, MavenMetaData metaData) {
+      final String cacheKey = toCacheKey(jarFile, entryPath);
+      final CacheEntry cacheEntry = new CacheEntry(jarFile.getAbsoluteFile(), fingerprint(jarFile), metaData);
+      synchronized (this) {
+         entries.put(cacheKey, cacheEntry);
+         dirty = true;
+      }
+   }
+
+   private static String toCacheKey(File jarFile, String entryPath) {
+      final String path = jarFile.getAbsolutePath().replace('\\', '/');
+      return entryPath == null ? path : path + "!/" + entryPath;
+   }
+
+   private static File toFile(String cacheKey) {
+      final int idx = cacheKey.indexOf("!/");
+      return new File(idx < 0 ? cacheKey : cacheKey.substring(0, idx));
+   }
+
+   private String fingerprint(File jarFile) {
+      // computed once per build, a jar with embedded libraries is looked up several times
+      final File file = jarFile.getAbsoluteFile();
+      final String fingerprint = fingerprints.get(file);
+      if (fingerprint != null) {
+         return fingerprint;
+      }
+      // concurrent lookups of the same jar may both compute it, the first one wins
+      final String computed = computeFingerprint(file);
+      final String previous = fingerprints.putIfAbsent(file, computed);
+      return previous == null ? computed : previous;
+   }
+
+   private String computeFingerprint(File jarFile) {
+      final StringBuilder sb = new StringBuilder();
+      sb.append(jarFile.length());
+      sb.append(';');
+      sb.append(jarFile.lastModified());
+      if (hashContent) {
+         sb.append(';');
+         sb.append(sha1(jarFile));
+      }
+      return sb.toString();
+   }
+
+   private String sha1(File file) {
+      final MessageDigest digest;
+      try {
+         digest = MessageDigest.getInstance("SHA-1");
+      }
+      catch (NoSuchAlgorithmException e) {
+         throw Exceptions.pipe(e);
+      }
+
+      new IOOperation<InputStream>(buffIn(fileIn(file))) {
+         @Override
+         protected void run(InputStream in) throws IOException {
+            final byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read > -1; read = in.read(buffer)) {
+               digest.update(buffer, 0, read);
+               statistics.addBytesRead(read);
+            }
+         }
+      }.run();
+
+      final StringBuilder sb = new StringBuilder();
+      for (byte b : digest.digest()) {
+         sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+         sb.append(Character.forDigit(b & 0xF, 16));
+      }
+      return sb.toString();
+   }
+}
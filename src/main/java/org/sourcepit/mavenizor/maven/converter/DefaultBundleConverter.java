@@ -19,12 +19,6 @@ package org.sourcepit.mavenizor.maven.converter;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static org.sourcepit.common.maven.model.util.MavenModelUtils.parseArtifactKey;
 import static org.sourcepit.common.maven.model.util.MavenModelUtils.toArtifactKey;
-import static org.sourcepit.common.utils.io.IO.buffIn;
-import static org.sourcepit.common.utils.io.IO.buffOut;
-import static org.sourcepit.common.utils.io.IO.fileIn;
-import static org.sourcepit.common.utils.io.IO.fileOut;
-import static org.sourcepit.common.utils.io.IO.osgiIn;
-import static org.sourcepit.common.utils.io.IO.zipIn;
 import static org.sourcepit.mavenizor.maven.converter.ConvertionDirective.AUTO_DETECT;
 import static org.sourcepit.mavenizor.maven.converter.ConvertionDirective.IGNORE;
 import static org.sourcepit.mavenizor.maven.converter.ConvertionDirective.MAVENIZE;
@@ -32,41 +26,24 @@ import static org.sourcepit.mavenizor.maven.converter.ConvertionDirective.OMIT;
 import static org.sourcepit.mavenizor.maven.converter.ConvertionDirective.REPLACE;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 import javax.inject.Named;
 
-import org.apache.commons.io.IOUtils;
-import org.eclipse.emf.common.util.EList;
 import org.eclipse.osgi.service.resolver.BundleDescription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.sourcepit.common.manifest.osgi.BundleManifest;
-import org.sourcepit.common.manifest.osgi.ClassPathEntry;
 import org.sourcepit.common.maven.model.MavenArtifact;
 import org.sourcepit.common.maven.model.MavenModelFactory;
-import org.sourcepit.common.utils.file.FileUtils;
-import org.sourcepit.common.utils.file.FileVisitor;
-import org.sourcepit.common.utils.io.DualIOOperation;
-import org.sourcepit.common.utils.io.IOHandle;
-import org.sourcepit.common.utils.io.IOOperation;
-import org.sourcepit.common.utils.io.UnclosableInputStream;
-import org.sourcepit.common.utils.lang.PipedIOException;
 import org.sourcepit.common.utils.path.Path;
-import org.sourcepit.common.utils.path.PathUtils;
-import org.sourcepit.common.utils.props.LinkedPropertiesMap;
 import org.sourcepit.common.utils.props.PropertiesMap;
-import org.sourcepit.common.utils.xml.XmlUtils;
 import org.sourcepit.mavenizor.Mavenizor.TargetType;
+import org.sourcepit.mavenizor.MavenizorEvents;
+import org.sourcepit.mavenizor.MavenizorEvents.Type;
+import org.sourcepit.mavenizor.RunStatistics;
 import org.sourcepit.mavenizor.state.BundleAdapterFactory;
+import org.sourcepit.mavenizor.state.BundleHeaders;
 
 @Named
 public class DefaultBundleConverter implements BundleConverter {
@@ -81,6 +58,8 @@ public class DefaultBundleConverter implements BundleConverter {
    public Result toMavenArtifacts(Request request) {
       final BundleDescription bundle = request.getBundle();
       final ConverterAction bundleAction = determineLibraryAction(bundle, null, request.getOptions());
+      request.getMetrics().increment("mavenizor_bundles_converted_total", 1L, "directive",
+         bundleAction.getDirective().literal());
       switch (bundleAction.getDirective()) {
          case IGNORE :
             return caseIgnore(bundle);
@@ -139,7 +118,8 @@ public class DefaultBundleConverter implements BundleConverter {
 
    private Result caseAutoDetect(Request request) {
       final BundleDescription bundle = request.getBundle();
-      final MavenArtifact artifact = detectMavenArtifactFromBundle(bundle);
+      final MavenArtifact artifact = detectMavenArtifactFromBundle(bundle, request.getConversionCache(),
+         request.getStatistics());
       if (artifact != null) {
          LOG.info(bundle + " -> " + toArtifactKey(artifact) + " (detected)");
          final Result result = new Result(bundle, AUTO_DETECT);
@@ -178,8 +158,17 @@ public class DefaultBundleConverter implements BundleConverter {
             LOG.info("Detected embedded libraries in " + getBundleLocation(request.getBundle()));
             break;
          case JAVA :
-            for (Path libEntry : libEntries) {
-               processEmbeddedLibrary(request, libEntry, result);
+            final BundleDescription bundle = request.getBundle();
+            final File bundleWorkingDir = new File(request.getWorkingDirectory(), bundle.toString());
+            final EmbeddedLibraryExtractor extractor = new EmbeddedLibraryExtractor(getBundleLocation(bundle),
+               bundleWorkingDir);
+            try {
+               for (Path libEntry : libEntries) {
+                  processEmbeddedLibrary(request, extractor, libEntry, result);
+               }
+            }
+            finally {
+               extractor.close();
             }
             break;
          default :
@@ -187,7 +176,8 @@ public class DefaultBundleConverter implements BundleConverter {
       }
    }
 
-   private void processEmbeddedLibrary(Request request, Path libEntry, Result result) {
+   private void processEmbeddedLibrary(Request request, EmbeddedLibraryExtractor extractor, Path libEntry,
+      Result result) {
       final BundleDescription bundle = request.getBundle();
       final ConverterAction libAction = determineLibraryAction(bundle, libEntry, request.getOptions());
       final ConvertionDirective directive = libAction.getDirective();
@@ -199,7 +189,7 @@ public class DefaultBundleConverter implements BundleConverter {
          case AUTO_DETECT :
          case MAVENIZE :
             final boolean autoDetect = directive == AUTO_DETECT;
-            mavenizeEmbeddedLibrary(request, libEntry, autoDetect, result);
+            mavenizeEmbeddedLibrary(request, extractor, libEntry, autoDetect, result);
             break;
          case REPLACE :
             final MavenArtifact replacement = libAction.getReplacement();
@@ -211,7 +201,8 @@ public class DefaultBundleConverter implements BundleConverter {
       }
    }
 
-   private void mavenizeEmbeddedLibrary(Request request, Path libEntry, boolean autoDetect, Result result) {
+   private void mavenizeEmbeddedLibrary(Request request, EmbeddedLibraryExtractor extractor, Path libEntry,
+      boolean autoDetect, Result result) {
       final BundleDescription bundle = request.getBundle();
       final File bundleLocation = getBundleLocation(bundle);
 
@@ -219,59 +210,77 @@ public class DefaultBundleConverter implements BundleConverter {
       final File bundleWorkingDir = new File(workingDir, bundle.toString());
       final File libFile = new File(bundleWorkingDir, libEntry.toString());
 
-      if (copyEmbeddedLib(bundleLocation, libEntry, libFile)) {
-         if (autoDetect) {
-            MavenArtifact artifact = detectMavenArtifactFromLib(libFile);
-            if (artifact == null) {
-               result.getUnhandledEmbeddedLibraries().add(libEntry);
-            }
-            else {
-               LOG.info(bundle + "/" + libEntry + " -> " + toArtifactKey(artifact) + " (detected)");
-               result.getConvertedArtifacts().add(newConvertedArtifact(artifact, AUTO_DETECT, true));
-            }
+      if (autoDetect) {
+         // inspect the library in place, extract it only if it will be distributed
+         final MavenMetaData metaData = getMavenMetaData(request.getConversionCache(), bundleLocation, libEntry,
+            request.getStatistics());
+         if (metaData == null) {
+            result.getMissingEmbeddedLibraries().add(libEntry);
+            return;
+         }
+
+         final MavenArtifact artifact = toMavenArtifact(metaData, libFile);
+         if (artifact == null) {
+            result.getUnhandledEmbeddedLibraries().add(libEntry);
+         }
+         else if (extract(request, extractor, libEntry, libFile)) {
+            LOG.info(bundle + "/" + libEntry + " -> " + toArtifactKey(artifact) + " (detected)");
+            result.getConvertedArtifacts().add(newConvertedArtifact(artifact, AUTO_DETECT, true));
          }
          else {
-            final GAVStrategy gav = request.getGAVStrategy();
+            result.getMissingEmbeddedLibraries().add(libEntry);
+         }
+      }
+      else if (extract(request, extractor, libEntry, libFile)) {
+         final GAVStrategy gav = request.getGAVStrategy();
 
-            final MavenArtifact artifact = MavenModelFactory.eINSTANCE.createMavenArtifact();
-            artifact.setGroupId(gav.deriveGroupId(bundle));
-            artifact.setArtifactId(gav.deriveArtifactId(bundle, libEntry));
-            artifact.setVersion(gav.deriveMavenVersion(bundle));
-            artifact.setFile(libFile);
+         final MavenArtifact artifact = MavenModelFactory.eINSTANCE.createMavenArtifact();
+         artifact.setGroupId(gav.deriveGroupId(bundle));
+         artifact.setArtifactId(gav.deriveArtifactId(bundle, libEntry));
+         artifact.setVersion(gav.deriveMavenVersion(bundle));
+         artifact.setFile(libFile);
 
-            LOG.info(bundle + "/" + libEntry + " -> " + toArtifactKey(artifact) + " (mavenized)");
-            result.getConvertedArtifacts().add(newConvertedArtifact(artifact, MAVENIZE, true));
-         }
+         LOG.info(bundle + "/" + libEntry + " -> " + toArtifactKey(artifact) + " (mavenized)");
+         result.getConvertedArtifacts().add(newConvertedArtifact(artifact, MAVENIZE, true));
       }
       else {
          result.getMissingEmbeddedLibraries().add(libEntry);
       }
    }
 
-   private static MavenArtifact detectMavenArtifactFromBundle(BundleDescription bundle) {
+   private static boolean extract(Request request, EmbeddedLibraryExtractor extractor, Path libEntry, File libFile) {
+      final MavenizorEvents.Event event = MavenizorEvents.begin(Type.LIBRARY_EXTRACTION);
+      final long bytes = extractor.extract(libEntry, libFile);
+      event.setBundle(request.getBundle().getSymbolicName()).setBytes(Math.max(bytes, 0L)).commit();
+      if (bytes > 0) {
+         // extraction streams the library once, so everything copied was read too
+         request.getStatistics().addBytesRead(bytes);
+         request.getStatistics().addBytesCopied(bytes);
+         request.getMetrics().recordSize("mavenizor_extracted_library_size_bytes", bytes);
+      }
+      return bytes > -1;
+   }
+
+   private static MavenArtifact detectMavenArtifactFromBundle(BundleDescription bundle, ConversionCache cache,
+      RunStatistics statistics) {
       MavenArtifact artifact = detectMavenArtifactFromManifest(bundle);
       if (artifact == null) {
-         final String mavenPackaging = getMavenPackaging(bundle);
-         if (mavenPackaging != null && mavenPackaging.startsWith("eclipse-")) // force mavenization of tycho artifacts
-         {
-            return null;
-         }
-         final PropertiesMap pomProperties = loadPomPropertiesFromBundle(bundle);
-         artifact = toMavenArtifact(pomProperties, getBundleLocation(bundle));
+         final File bundleLocation = getBundleLocation(bundle);
+         artifact = toMavenArtifact(getMavenMetaData(cache, bundleLocation, null, statistics), bundleLocation);
       }
       return artifact;
    }
 
    private static MavenArtifact detectMavenArtifactFromManifest(BundleDescription bundle) {
-      final BundleManifest manifest = BundleAdapterFactory.DEFAULT.adapt(bundle, BundleManifest.class);
+      final BundleHeaders headers = BundleAdapterFactory.DEFAULT.adapt(bundle, BundleHeaders.class);
 
-      final String groupId = manifest.getHeaderValue("Maven-GroupId");
-      final String artifactId = manifest.getHeaderValue("Maven-ArtifactId");
-      final String version = manifest.getHeaderValue("Maven-Version");
+      final String groupId = headers.getHeaderValue("Maven-GroupId");
+      final String artifactId = headers.getHeaderValue("Maven-ArtifactId");
+      final String version = headers.getHeaderValue("Maven-Version");
 
       if (groupId != null && artifactId != null && version != null) {
-         final String type = manifest.getHeaderValue("Maven-Type");
-         final String classifier = manifest.getHeaderValue("Maven-Classifier");
+         final String type = headers.getHeaderValue("Maven-Type");
+         final String classifier = headers.getHeaderValue("Maven-Classifier");
 
          final MavenArtifact artifact = MavenModelFactory.eINSTANCE.createMavenArtifact();
          artifact.setGroupId(groupId);
@@ -290,14 +299,36 @@ public class DefaultBundleConverter implements BundleConverter {
       return null;
    }
 
-   private static MavenArtifact detectMavenArtifactFromLib(final File libFile) {
-      final String mavenPackaging = getMavenPackagingFromLib(libFile);
+   private static MavenMetaData getMavenMetaData(ConversionCache cache, File bundleLocation, Path libEntry,
+      RunStatistics statistics) {
+      final String entryPath = libEntry == null ? null : libEntry.toString();
+      if (cache == null || !bundleLocation.isFile()) {
+         return scan(bundleLocation, entryPath, statistics);
+      }
+      MavenMetaData metaData = cache.get(bundleLocation, entryPath);
+      if (metaData == null) {
+         metaData = scan(bundleLocation, entryPath, statistics);
+         if (metaData != null) {
+            cache.put(bundleLocation, entryPath, metaData);
+         }
+      }
+      return metaData;
+   }
+
+   private static MavenMetaData scan(File bundleLocation, String entryPath, RunStatistics statistics) {
+      if (entryPath == null) {
+         return MavenMetaDataScanner.scan(bundleLocation, statistics);
+      }
+      return MavenMetaDataScanner.scanEmbedded(bundleLocation, entryPath, statistics);
+   }
+
+   private static MavenArtifact toMavenArtifact(MavenMetaData metaData, File artifactFile) {
+      final String mavenPackaging = metaData.getPackaging();
       if (mavenPackaging != null && mavenPackaging.startsWith("eclipse-")) // force mavenization of tycho artifacts
       {
          return null;
       }
-      final PropertiesMap pomProperties = loadPomPropertiesFromLib(libFile);
-      return toMavenArtifact(pomProperties, libFile);
+      return toMavenArtifact(metaData.getPomProperties(), artifactFile);
    }
 
    private static MavenArtifact toMavenArtifact(final PropertiesMap pomProperties, final File artifactFile) {
@@ -313,148 +344,6 @@ public class DefaultBundleConverter implements BundleConverter {
       return artifact;
    }
 
-   private static String getMavenPackaging(BundleDescription bundle) {
-      final List<String> paths = new ArrayList<String>();
-
-      String packaging = null;
-
-      final File bundleLocation = getBundleLocation(bundle);
-      if (bundleLocation.isDirectory()) {
-         packaging = getMavenPackagingFromDir(paths, bundleLocation);
-      }
-      else {
-         packaging = getMavenPackagingFromLib(paths, bundleLocation);
-      }
-
-      if (paths.size() != 1) {
-         return null;
-      }
-
-      return packaging;
-   }
-
-   private static String getMavenPackagingFromDir(final Collection<String> paths, final File dir) {
-      final String[] packaging = new String[1];
-      FileUtils.accept(new File(dir, "META-INF/maven"), new FileVisitor() {
-         public boolean visit(File file) {
-            final Path path = new Path(PathUtils.getRelativePath(file, dir, "/"));
-            if (isPomPath(path)) {
-               paths.add(path.toString());
-               packaging[0] = XmlUtils.queryText(XmlUtils.readXml(file), "/project/packaging");
-            }
-            return true;
-         }
-      });
-      return packaging[0];
-   }
-
-   private static String getMavenPackagingFromLib(final Collection<String> paths, final File libFile) {
-      final String[] packaging = new String[1];
-      new IOOperation<ZipInputStream>(zipIn(buffIn(fileIn(libFile)))) {
-         @Override
-         protected void run(final ZipInputStream zipIn) throws IOException {
-            ZipEntry zipEntry = zipIn.getNextEntry();
-            while (zipEntry != null) {
-               if (isPomEntry(zipEntry)) {
-                  paths.add(zipEntry.getName());
-                  UnclosableInputStream in = new UnclosableInputStream() {
-                     @Override
-                     protected InputStream openInputStream() throws IOException {
-                        return zipIn;
-                     }
-                  };
-                  packaging[0] = XmlUtils.queryText(XmlUtils.readXml(in), "/project/packaging");
-               }
-               zipEntry = zipIn.getNextEntry();
-            }
-         }
-
-         private boolean isPomEntry(ZipEntry zipEntry) {
-            if (!zipEntry.isDirectory()) {
-               return isPomPath(new Path(zipEntry.getName()));
-            }
-            return false;
-         }
-      }.run();
-      return packaging[0];
-   }
-
-   private static String getMavenPackagingFromLib(final File libFile) {
-      final List<String> paths = new ArrayList<String>();
-      final String packaging = getMavenPackagingFromLib(paths, libFile);
-      if (paths.size() != 1) {
-         return null;
-      }
-      return packaging;
-   }
-
-   private static PropertiesMap loadPomPropertiesFromBundle(BundleDescription bundle) {
-      final List<String> paths = new ArrayList<String>();
-      final PropertiesMap pomProperties = new LinkedPropertiesMap();
-
-      final File bundleLocation = getBundleLocation(bundle);
-      if (bundleLocation.isDirectory()) {
-         loadPomPropertiesFromDir(paths, pomProperties, bundleLocation);
-      }
-      else {
-         loadPomPropertiesFromLib(paths, pomProperties, bundleLocation);
-      }
-
-      if (paths.size() != 1) {
-         pomProperties.clear();
-      }
-
-      return pomProperties;
-   }
-
-   private static void loadPomPropertiesFromDir(final Collection<String> paths, final PropertiesMap pomProperties,
-      final File dir) {
-      FileUtils.accept(new File(dir, "META-INF/maven"), new FileVisitor() {
-         public boolean visit(File file) {
-            final Path path = new Path(PathUtils.getRelativePath(file, dir, "/"));
-            if (isPomPropertiesPath(path)) {
-               paths.add(path.toString());
-               pomProperties.load(file);
-            }
-            return true;
-         }
-      });
-   }
-
-   private static PropertiesMap loadPomPropertiesFromLib(final File libFile) {
-      final List<String> paths = new ArrayList<String>();
-      final PropertiesMap pomProperties = new LinkedPropertiesMap();
-      loadPomPropertiesFromLib(paths, pomProperties, libFile);
-      if (paths.size() != 1) {
-         pomProperties.clear();
-      }
-      return pomProperties;
-   }
-
-   private static void loadPomPropertiesFromLib(final Collection<String> paths, final PropertiesMap pomProperties,
-      final File libFile) {
-      new IOOperation<ZipInputStream>(zipIn(buffIn(fileIn(libFile)))) {
-         @Override
-         protected void run(ZipInputStream zipIn) throws IOException {
-            ZipEntry zipEntry = zipIn.getNextEntry();
-            while (zipEntry != null) {
-               if (isPomPropertiesEntry(zipEntry)) {
-                  paths.add(zipEntry.getName());
-                  pomProperties.load(zipIn);
-               }
-               zipEntry = zipIn.getNextEntry();
-            }
-         }
-
-         private boolean isPomPropertiesEntry(ZipEntry zipEntry) {
-            if (!zipEntry.isDirectory()) {
-               return isPomPropertiesPath(new Path(zipEntry.getName()));
-            }
-            return false;
-         }
-      }.run();
-   }
-
    private static File getBundleLocation(BundleDescription bundle) {
       final File bundleLocation = BundleAdapterFactory.DEFAULT.adapt(bundle, File.class);
       if (bundleLocation == null) {
@@ -463,67 +352,21 @@ public class DefaultBundleConverter implements BundleConverter {
       return bundleLocation;
    }
 
-   private boolean copyEmbeddedLib(final File bundleLocation, Path libEntry, final File libCopyFile) {
-      final IOHandle<? extends InputStream> lib = osgiIn(bundleLocation, libEntry.toString());
-      final IOHandle<? extends OutputStream> copy = buffOut(fileOut(libCopyFile, true));
-      try {
-         new DualIOOperation<InputStream, OutputStream>(lib, copy) {
-            @Override
-            protected void run(InputStream input, OutputStream output) throws IOException {
-               IOUtils.copy(input, output);
-            }
-         }.run();
-         return true;
-      }
-      catch (PipedIOException e) {
-         final FileNotFoundException fnfe = e.adapt(FileNotFoundException.class);
-         if (fnfe != null) {
-            return false;
-         }
-         else {
-            throw e;
-         }
-      }
-   }
-
    private static List<Path> getEmbeddedLibEntries(BundleDescription bundle) {
-      final BundleManifest manifest = BundleAdapterFactory.DEFAULT.adapt(bundle, BundleManifest.class);
-      if (manifest == null) {
+      final BundleHeaders headers = BundleAdapterFactory.DEFAULT.adapt(bundle, BundleHeaders.class);
+      if (headers == null) {
          throw new IllegalStateException("Unable to load bundle manifest for bundle " + bundle);
       }
       final List<Path> jarPaths = new ArrayList<Path>();
-      final EList<ClassPathEntry> bundleCP = manifest.getBundleClassPath();
+      final List<String> bundleCP = headers.getBundleClassPath();
       if (bundleCP != null) {
-         for (ClassPathEntry cpEntry : bundleCP) {
-            EList<String> paths = cpEntry.getPaths();
-            for (String path : paths) {
-               jarPaths.add(new Path(path));
-            }
+         for (String path : bundleCP) {
+            jarPaths.add(new Path(path));
          }
       }
       return jarPaths;
    }
 
-   private static boolean isPomPropertiesPath(final Path path) {
-      final String pathString = path.toString();
-      if (pathString.startsWith("META-INF/maven/") && pathString.endsWith("/pom.properties")) {
-         if (path.getSegments().size() == 5) {
-            return true;
-         }
-      }
-      return false;
-   }
-
-   private static boolean isPomPath(final Path path) {
-      final String pathString = path.toString();
-      if (pathString.startsWith("META-INF/maven/") && pathString.endsWith("/pom.xml")) {
-         if (path.getSegments().size() == 5) {
-            return true;
-         }
-      }
-      return false;
-   }
-
    private ConverterAction determineLibraryAction(BundleDescription bundle, Path libEntry, PropertiesMap options) {
       final String libActionProperty;
       if (libEntry == null) {
@@ -18,12 +18,13 @@ package org.sourcepit.mavenizor.maven.converter;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -45,11 +46,83 @@ public class DefaultGAVStrategy implements GAVStrategy {
    private static final Pattern GROUP_3_PATTERN = Pattern.compile("^(\\w*\\.\\w*\\.\\w*)(\\..*)?$");
    private static final String GROUP_3[] = { "net.sf", "org.apache", "org.codehaus", "org.tigris", "org.sourcepit" };
 
+   private static class PrefixTrie {
+      private final Map<Character, PrefixTrie> children = new HashMap<Character, PrefixTrie>();
+      private boolean terminal;
+
+      void add(String prefix) {
+         PrefixTrie node = this;
+         for (int i = 0; i < prefix.length(); i++) {
+            final Character c = Character.valueOf(prefix.charAt(i));
+            PrefixTrie child = node.children.get(c);
+            if (child == null) {
+               child = new PrefixTrie();
+               node.children.put(c, child);
+            }
+            node = child;
+         }
+         node.terminal = true;
+      }
+
+      boolean isPrefixOf(String value) {
+         PrefixTrie node = this;
+         for (int i = 0; !node.terminal && i < value.length(); i++) {
+            node = node.children.get(Character.valueOf(value.charAt(i)));
+            if (node == null) {
+               return false;
+            }
+         }
+         return node.terminal;
+      }
+   }
+
+   private static class GroupIdMapping {
+      private final PathMatcher matcher;
+      private final String template;
+      private final StringInterpolator interpolator;
+      private PropertiesSource properties;
+
+      GroupIdMapping(String patterns, String template) {
+         this.matcher = PathMatcher.parsePackagePatterns(patterns);
+         this.template = template;
+         if (template.indexOf("${") < 0 && template.indexOf('\\') < 0) {
+            // nothing to interpolate
+            this.interpolator = null;
+         }
+         else {
+            this.interpolator = new StringInterpolator();
+            this.interpolator.setEscapeString("\\");
+            this.interpolator.getValueSources().add(new AbstractValueSource(false) {
+               public Object getValue(String expression) {
+                  return properties.get(expression);
+               }
+            });
+         }
+      }
+
+      synchronized String apply(PropertiesSource properties) {
+         if (interpolator == null) {
+            return template;
+         }
+         this.properties = properties;
+         try {
+            return interpolator.interpolate(template);
+         }
+         finally {
+            this.properties = null;
+         }
+      }
+   }
+
    private final List<SnapshotRule> snapshotRules;
    private final String groupIdPrefix;
    private final boolean trimQualifiers;
-   private final Collection<String> group3Prefixes;
-   private final Map<String, String> groupIdMappings;
+   private final PrefixTrie group3Prefixes;
+   private final List<GroupIdMapping> groupIdMappings;
+
+   // the same bundle is derived as conversion target and as dependency of other bundles
+   private final Map<BundleDescription, String> bundleToGroupIdMap = new ConcurrentHashMap<BundleDescription, String>();
+   private final Map<BundleDescription, String> bundleToVersionMap = new ConcurrentHashMap<BundleDescription, String>();
 
    public DefaultGAVStrategy(@NotNull List<SnapshotRule> snapshotRules, String groupIdPrefix, boolean trimQualifiers,
       Collection<String> group3Prefixes, Map<String, String> groupIdMappings) {
@@ -57,18 +130,35 @@ public class DefaultGAVStrategy implements GAVStrategy {
       this.groupIdPrefix = groupIdPrefix == null ? null : groupIdPrefix.endsWith(".") ? groupIdPrefix : groupIdPrefix
          + ".";
       this.trimQualifiers = trimQualifiers;
-      this.groupIdMappings = groupIdMappings;
 
-      this.group3Prefixes = new HashSet<String>();
-      Collections.addAll(this.group3Prefixes, GROUP_3);
+      this.groupIdMappings = new ArrayList<GroupIdMapping>(groupIdMappings.size());
+      for (Entry<String, String> entry : groupIdMappings.entrySet()) {
+         this.groupIdMappings.add(new GroupIdMapping(entry.getKey(), entry.getValue()));
+      }
+
+      this.group3Prefixes = new PrefixTrie();
+      for (String group3Prefix : GROUP_3) {
+         this.group3Prefixes.add(group3Prefix);
+      }
       if (group3Prefixes != null) {
-         this.group3Prefixes.addAll(group3Prefixes);
+         for (String group3Prefix : group3Prefixes) {
+            this.group3Prefixes.add(group3Prefix);
+         }
       }
    }
 
    public String deriveGroupId(@NotNull BundleDescription bundle) {
       final String symbolicName = bundle.getSymbolicName();
 
+      String groupId = bundleToGroupIdMap.get(bundle);
+      if (groupId == null) {
+         groupId = deriveGroupIdOfBundle(symbolicName);
+         bundleToGroupIdMap.put(bundle, groupId);
+      }
+      return groupId;
+   }
+
+   private String deriveGroupIdOfBundle(String symbolicName) {
       String groupId = applyGroupIdMapping(symbolicName);
       if (groupId == null) {
          groupId = deriveGroupId(symbolicName);
@@ -80,41 +170,25 @@ public class DefaultGAVStrategy implements GAVStrategy {
    }
 
    private String applyGroupIdMapping(final String symbolicName) {
-      for (Entry<String, String> entry : groupIdMappings.entrySet()) {
-         final PathMatcher matcher = PathMatcher.parsePackagePatterns(entry.getKey());
-         if (matcher.isMatch(symbolicName)) {
+      for (GroupIdMapping groupIdMapping : groupIdMappings) {
+         if (groupIdMapping.matcher.isMatch(symbolicName)) {
             PropertiesMap props = new LinkedPropertiesMap(1);
             props.put("bundle.groupId", deriveGroupId(symbolicName));
             props.put("bundle.symbolicName", symbolicName);
 
-            return interpolate(props, entry.getValue());
+            return groupIdMapping.apply(props);
          }
       }
       return null;
    }
 
-   private static String interpolate(final PropertiesSource moduleProperties, String value) {
-      StringInterpolator s = new StringInterpolator();
-      s.setEscapeString("\\");
-      s.getValueSources().add(new AbstractValueSource(false) {
-         public Object getValue(String expression) {
-            return moduleProperties.get(expression);
-         }
-      });
-      return s.interpolate(value);
-   }
-
    private String deriveGroupId(@NotNull String symbolicName) {
       checkArgument(symbolicName.length() > 0);
-      Matcher m = null;
-
-      for (String group3Prefix : group3Prefixes) {
-         if (symbolicName.startsWith(group3Prefix)) {
-            m = GROUP_3_PATTERN.matcher(symbolicName);
-         }
+      final Matcher m;
+      if (group3Prefixes.isPrefixOf(symbolicName)) {
+         m = GROUP_3_PATTERN.matcher(symbolicName);
       }
-
-      if (m == null) {
+      else {
          m = GROUP_2_PATTERN.matcher(symbolicName);
       }
 
@@ -139,8 +213,13 @@ public class DefaultGAVStrategy implements GAVStrategy {
    }
 
    public String deriveMavenVersion(@NotNull BundleDescription bundle) {
-      final Version version = Version.parse(bundle.getVersion().toString());
-      return deriveMavenVersion(bundle, version);
+      String mavenVersion = bundleToVersionMap.get(bundle);
+      if (mavenVersion == null) {
+         final Version version = Version.parse(bundle.getVersion().toString());
+         mavenVersion = deriveMavenVersion(bundle, version);
+         bundleToVersionMap.put(bundle, mavenVersion);
+      }
+      return mavenVersion;
    }
 
    private String deriveMavenVersion(BundleDescription bundle, final Version version) {
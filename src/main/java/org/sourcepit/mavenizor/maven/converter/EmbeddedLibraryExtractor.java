@@ -0,0 +1,179 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven.converter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.sourcepit.common.utils.lang.Exceptions;
+import org.sourcepit.common.utils.path.Path;
+import org.sourcepit.common.utils.props.LinkedPropertiesMap;
+import org.sourcepit.common.utils.props.PropertiesMap;
+
+/**
+ * Extracts the embedded libraries of one bundle into its working directory. The fingerprints of the extracted
+ * libraries are recorded in {@link #EXTRACTED_PROPERTIES}, which is read once and written once on {@link #close()}.
+ */
+public final class EmbeddedLibraryExtractor {
+   static final String EXTRACTED_PROPERTIES = ".extracted.properties";
+
+   private final File bundleLocation;
+
+   private final File extractedFile;
+
+   private PropertiesMap extracted;
+
+   private boolean dirty;
+
+   private ZipFile zipFile;
+
+   public EmbeddedLibraryExtractor(File bundleLocation, File bundleWorkingDir) {
+      this.bundleLocation = bundleLocation;
+      this.extractedFile = new File(bundleWorkingDir, EXTRACTED_PROPERTIES);
+   }
+
+   /**
+    * Returns the number of bytes copied, <code>0</code> if the library is up to date and <code>-1</code> if the bundle
+    * doesn't contain the library.
+    */
+   public long extract(Path libEntry, File libFile) {
+      try {
+         if (bundleLocation.isDirectory()) {
+            return extractFromDir(libEntry, libFile);
+         }
+         return extractFromJar(libEntry, libFile);
+      }
+      catch (IOException e) {
+         throw Exceptions.pipe(e);
+      }
+   }
+
+   public void close() {
+      try {
+         if (zipFile != null) {
+            zipFile.close();
+            zipFile = null;
+         }
+      }
+      catch (IOException e) {
+         throw Exceptions.pipe(e);
+      }
+      finally {
+         if (dirty) {
+            extractedFile.getParentFile().mkdirs();
+            extracted.store(extractedFile);
+            dirty = false;
+         }
+      }
+   }
+
+   private long extractFromDir(Path libEntry, File libFile) throws IOException {
+      final File srcFile = new File(bundleLocation, libEntry.toString());
+      if (!srcFile.isFile()) {
+         return -1L;
+      }
+
+      final String fingerprint = srcFile.length() + ";" + srcFile.lastModified();
+      if (isCurrent(libEntry, libFile, srcFile.length(), fingerprint)) {
+         return 0L;
+      }
+
+      libFile.getParentFile().mkdirs();
+      final long size;
+      final InputStream in = Files.newInputStream(srcFile.toPath());
+      try {
+         size = replace(in, libFile);
+      }
+      finally {
+         in.close();
+      }
+
+      record(libEntry, fingerprint);
+      return size;
+   }
+
+   private long extractFromJar(Path libEntry, File libFile) throws IOException {
+      if (zipFile == null) {
+         zipFile = new ZipFile(bundleLocation);
+      }
+
+      final ZipEntry zipEntry = zipFile.getEntry(libEntry.toString());
+      if (zipEntry == null || zipEntry.isDirectory()) {
+         return -1L;
+      }
+
+      // crc and size are taken from the central directory, no need to touch the entry data
+      final String fingerprint = zipEntry.getCrc() + ";" + zipEntry.getSize();
+      if (isCurrent(libEntry, libFile, zipEntry.getSize(), fingerprint)) {
+         return 0L;
+      }
+
+      libFile.getParentFile().mkdirs();
+      final long size;
+      final InputStream in = zipFile.getInputStream(zipEntry);
+      try {
+         size = replace(in, libFile);
+      }
+      finally {
+         in.close();
+      }
+
+      record(libEntry, fingerprint);
+      return size;
+   }
+
+   private static long replace(InputStream in, File libFile) throws IOException {
+      // never write into the existing file, the installer may have hard linked it into the local repository
+      final File tmpFile = new File(libFile.getParentFile(), libFile.getName() + ".tmp");
+      try {
+         final long size = Files.copy(in, tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+         Files.move(tmpFile.toPath(), libFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+         return size;
+      }
+      finally {
+         Files.deleteIfExists(tmpFile.toPath());
+      }
+   }
+
+   private boolean isCurrent(Path libEntry, File libFile, long size, String fingerprint) {
+      if (!libFile.isFile() || libFile.length() != size) {
+         return false;
+      }
+      return fingerprint.equals(getExtracted().get(libEntry.toString()));
+   }
+
+   private void record(Path libEntry, String fingerprint) {
+      getExtracted().put(libEntry.toString(), fingerprint);
+      dirty = true;
+   }
+
+   private PropertiesMap getExtracted() {
+      if (extracted == null) {
+         extracted = new LinkedPropertiesMap();
+         if (extractedFile.exists()) {
+            extracted.load(extractedFile);
+         }
+      }
+      return extracted;
+   }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven.converter;
+
+import org.sourcepit.common.utils.props.PropertiesMap;
+
+public class MavenMetaData {
+   private final String packaging;
+
+   private final PropertiesMap pomProperties;
+
+   public MavenMetaData(String packaging, PropertiesMap pomProperties) {
+      this.packaging = packaging;
+      this.pomProperties = pomProperties;
+   }
+
+   public String getPackaging() {
+      return packaging;
+   }
+
+   public PropertiesMap getPomProperties() {
+      return pomProperties;
+   }
+
+}
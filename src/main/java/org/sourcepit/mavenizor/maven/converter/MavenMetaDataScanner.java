@@ -0,0 +1,293 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven.converter;
+
+import static org.sourcepit.common.utils.io.IO.buffIn;
+import static org.sourcepit.common.utils.io.IO.fileIn;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.sourcepit.common.utils.io.IOOperation;
+import org.sourcepit.common.utils.lang.Exceptions;
+import org.sourcepit.common.utils.path.Path;
+import org.sourcepit.common.utils.props.LinkedPropertiesMap;
+import org.sourcepit.common.utils.props.PropertiesMap;
+import org.sourcepit.mavenizor.RunStatistics;
+
+public final class MavenMetaDataScanner {
+   private MavenMetaDataScanner() {
+      super();
+   }
+
+   public static MavenMetaData scan(File file) {
+      return scan(file, new RunStatistics());
+   }
+
+   /**
+    * Same as {@link #scan(File)}, the bytes read are added to the given statistics.
+    */
+   public static MavenMetaData scan(File file, RunStatistics statistics) {
+      if (file.isDirectory()) {
+         return scanDir(file, statistics);
+      }
+      return scanJar(file, statistics);
+   }
+
+   /**
+    * Returns <code>null</code> if the bundle doesn't contain the library.
+    */
+   public static MavenMetaData scanEmbedded(File bundleLocation, String libEntry) {
+      return scanEmbedded(bundleLocation, libEntry, new RunStatistics());
+   }
+
+   /**
+    * Same as {@link #scanEmbedded(File, String)}, the bytes read are added to the given statistics.
+    */
+   public static MavenMetaData scanEmbedded(File bundleLocation, String libEntry, RunStatistics statistics) {
+      if (bundleLocation.isDirectory()) {
+         final File libFile = new File(bundleLocation, libEntry);
+         return libFile.isFile() ? scan(libFile, statistics) : null;
+      }
+
+      try {
+         final ZipFile zipFile = new ZipFile(bundleLocation);
+         try {
+            final ZipEntry zipEntry = zipFile.getEntry(libEntry);
+            if (zipEntry == null || zipEntry.isDirectory()) {
+               return null;
+            }
+            final ZipInputStream in = new ZipInputStream(new BufferedInputStream(zipFile.getInputStream(zipEntry)));
+            try {
+               // streams through the whole library
+               statistics.addBytesRead(getCompressedSize(zipEntry));
+               return scanJar(in);
+            }
+            finally {
+               in.close();
+            }
+         }
+         finally {
+            zipFile.close();
+         }
+      }
+      catch (IOException e) {
+         throw Exceptions.pipe(e);
+      }
+   }
+
+   private static MavenMetaData scanDir(File dir, RunStatistics statistics) {
+      final List<File> poms = new ArrayList<File>();
+      final List<File> pomProperties = new ArrayList<File>();
+
+      // META-INF/maven/<groupId>/<artifactId>/
+      final File[] groupDirs = new File(dir, "META-INF/maven").listFiles();
+      if (groupDirs != null) {
+         for (File groupDir : groupDirs) {
+            final File[] artifactDirs = groupDir.listFiles();
+            if (artifactDirs != null) {
+               for (File artifactDir : artifactDirs) {
+                  final File pom = new File(artifactDir, "pom.xml");
+                  if (pom.isFile()) {
+                     poms.add(pom);
+                  }
+                  final File props = new File(artifactDir, "pom.properties");
+                  if (props.isFile()) {
+                     pomProperties.add(props);
+                  }
+               }
+            }
+         }
+      }
+
+      String packaging = null;
+      if (poms.size() == 1) {
+         packaging = readPackaging(poms.get(0));
+         statistics.addBytesRead(poms.get(0).length());
+      }
+
+      final PropertiesMap properties = new LinkedPropertiesMap();
+      if (pomProperties.size() == 1) {
+         properties.load(pomProperties.get(0));
+         statistics.addBytesRead(pomProperties.get(0).length());
+      }
+
+      return new MavenMetaData(packaging, properties);
+   }
+
+   private static String readPackaging(File pom) {
+      final String[] packaging = new String[1];
+      new IOOperation<InputStream>(buffIn(fileIn(pom))) {
+         @Override
+         protected void run(InputStream in) throws IOException {
+            packaging[0] = PomPackagingReader.readPackaging(in);
+         }
+      }.run();
+      return packaging[0];
+   }
+
+   private static MavenMetaData scanJar(File jarFile, RunStatistics statistics) {
+      final ZipFile zipFile;
+      try {
+         zipFile = new ZipFile(jarFile);
+      }
+      catch (ZipException e) {
+         // not a jar at all
+         return new MavenMetaData(null, new LinkedPropertiesMap());
+      }
+      catch (IOException e) {
+         throw Exceptions.pipe(e);
+      }
+      try {
+         return scanJar(zipFile, statistics);
+      }
+      catch (IOException e) {
+         throw Exceptions.pipe(e);
+      }
+      finally {
+         try {
+            zipFile.close();
+         }
+         catch (IOException e) {
+            // noop
+         }
+      }
+   }
+
+   private static MavenMetaData scanJar(ZipFile zipFile, RunStatistics statistics) throws IOException {
+      ZipEntry pom = null;
+      int pomCount = 0;
+
+      ZipEntry pomProperties = null;
+      int pomPropertiesCount = 0;
+
+      // the central directory tells us where the few entries we are interested in are located
+      final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+         final ZipEntry entry = entries.nextElement();
+         if (entry.isDirectory() || !entry.getName().startsWith("META-INF/maven/")) {
+            continue;
+         }
+         final Path path = new Path(entry.getName());
+         if (isPomPath(path)) {
+            pom = entry;
+            pomCount++;
+         }
+         else if (isPomPropertiesPath(path)) {
+            pomProperties = entry;
+            pomPropertiesCount++;
+         }
+      }
+
+      String packaging = null;
+      if (pomCount == 1) {
+         statistics.addBytesRead(getCompressedSize(pom));
+         final InputStream in = zipFile.getInputStream(pom);
+         try {
+            packaging = PomPackagingReader.readPackaging(in);
+         }
+         finally {
+            in.close();
+         }
+      }
+
+      final PropertiesMap properties = new LinkedPropertiesMap();
+      if (pomPropertiesCount == 1) {
+         statistics.addBytesRead(getCompressedSize(pomProperties));
+         final InputStream in = zipFile.getInputStream(pomProperties);
+         try {
+            properties.load(in);
+         }
+         finally {
+            in.close();
+         }
+      }
+
+      return new MavenMetaData(packaging, properties);
+   }
+
+   private static MavenMetaData scanJar(ZipInputStream zipIn) throws IOException {
+      // a nested jar has no random access, so we have to stream through it
+      String packaging = null;
+      int pomCount = 0;
+
+      final PropertiesMap properties = new LinkedPropertiesMap();
+      int pomPropertiesCount = 0;
+
+      ZipEntry zipEntry = zipIn.getNextEntry();
+      while (zipEntry != null) {
+         if (!zipEntry.isDirectory() && zipEntry.getName().startsWith("META-INF/maven/")) {
+            final Path path = new Path(zipEntry.getName());
+            if (isPomPath(path)) {
+               pomCount++;
+               if (pomCount == 1) {
+                  packaging = PomPackagingReader.readPackaging(zipIn);
+               }
+            }
+            else if (isPomPropertiesPath(path)) {
+               pomPropertiesCount++;
+               if (pomPropertiesCount == 1) {
+                  properties.load(zipIn);
+               }
+            }
+         }
+         zipEntry = zipIn.getNextEntry();
+      }
+
+      if (pomCount != 1) {
+         packaging = null;
+      }
+      if (pomPropertiesCount != 1) {
+         properties.clear();
+      }
+
+      return new MavenMetaData(packaging, properties);
+   }
+
+   private static long getCompressedSize(ZipEntry zipEntry) {
+      return Math.max(zipEntry.getCompressedSize(), 0L);
+   }
+
+   static boolean isPomPropertiesPath(final Path path) {
+      final String pathString = path.toString();
+      if (pathString.startsWith("META-INF/maven/") && pathString.endsWith("/pom.properties")) {
+         if (path.getSegments().size() == 5) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   static boolean isPomPath(final Path path) {
+      final String pathString = path.toString();
+      if (pathString.startsWith("META-INF/maven/") && pathString.endsWith("/pom.xml")) {
+         if (path.getSegments().size() == 5) {
+            return true;
+         }
+      }
+      return false;
+   }
+}
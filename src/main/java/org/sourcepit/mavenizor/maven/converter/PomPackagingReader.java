@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven.converter;
+
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.sourcepit.common.utils.lang.Exceptions;
+
+public final class PomPackagingReader {
+   private static final XMLInputFactory FACTORY = newXMLInputFactory();
+
+   private PomPackagingReader() {
+      super();
+   }
+
+   private static XMLInputFactory newXMLInputFactory() {
+      final XMLInputFactory factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+      factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+      factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+      return factory;
+   }
+
+   public static String readPackaging(InputStream in) {
+      try {
+         final XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
+         try {
+            return readPackaging(reader);
+         }
+         finally {
+            reader.close();
+         }
+      }
+      catch (XMLStreamException e) {
+         throw Exceptions.pipe(e);
+      }
+   }
+
+   private static String readPackaging(XMLStreamReader reader) throws XMLStreamException {
+      // stop as soon as /project/packaging was found, no need to read dependencies and the like
+      int depth = 0;
+      while (reader.hasNext()) {
+         switch (reader.next()) {
+            case XMLStreamConstants.START_ELEMENT :
+               depth++;
+               if (depth == 1 && !"project".equals(reader.getLocalName())) {
+                  return null;
+               }
+               if (depth == 2 && "packaging".equals(reader.getLocalName())) {
+                  return reader.getElementText().trim();
+               }
+               break;
+            case XMLStreamConstants.END_ELEMENT :
+               depth--;
+               if (depth == 0) {
+                  return null;
+               }
+               break;
+            default :
+               break;
+         }
+      }
+      return null;
+   }
+}
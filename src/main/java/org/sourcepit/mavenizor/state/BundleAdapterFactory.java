@@ -16,18 +16,12 @@
 
 package org.sourcepit.mavenizor.state;
 
-import static org.sourcepit.common.utils.io.IO.osgiIn;
-
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
 
-import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.osgi.service.resolver.BundleDescription;
 import org.sourcepit.common.manifest.osgi.BundleManifest;
-import org.sourcepit.common.manifest.osgi.resource.BundleManifestResourceImpl;
 import org.sourcepit.common.utils.adapt.AbstractAdapterFactory;
-import org.sourcepit.common.utils.io.IOOperation;
+import org.sourcepit.common.utils.adapt.Adapters;
 
 public class BundleAdapterFactory extends AbstractAdapterFactory {
    public final static BundleAdapterFactory DEFAULT = new BundleAdapterFactory();
@@ -46,26 +40,23 @@ public class BundleAdapterFactory extends AbstractAdapterFactory {
                }
             }
          }
-         else if (BundleManifest.class.isAssignableFrom(adapterType)) {
+         else if (BundleHeaders.class.isAssignableFrom(adapterType)) {
             final File bundleLocation = adapt(adaptable, File.class);
             if (bundleLocation != null) {
-               return (A) readManifest(bundleLocation);
+               final BundleHeaders headers = BundleHeaders.read(bundleLocation);
+               Adapters.addAdapter(bundle, headers);
+               return (A) headers;
+            }
+         }
+         else if (BundleManifest.class.isAssignableFrom(adapterType)) {
+            final BundleHeaders headers = adapt(adaptable, BundleHeaders.class);
+            if (headers != null) {
+               final BundleManifest manifest = headers.getManifest();
+               Adapters.addAdapter(bundle, manifest);
+               return (A) manifest;
             }
          }
       }
       return null;
    }
-
-   private static BundleManifest readManifest(File location) {
-      final Resource resource = new BundleManifestResourceImpl();
-      new IOOperation<InputStream>(osgiIn(location, "META-INF/MANIFEST.MF")) {
-         @Override
-         protected void run(InputStream inputStream) throws IOException {
-            resource.load(inputStream, null);
-         }
-      }.run();
-      final BundleManifest bundleManifest = (BundleManifest) resource.getContents().get(0);
-      resource.getContents().clear();
-      return bundleManifest;
-   }
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.state;
+
+import static org.sourcepit.common.utils.io.IO.osgiIn;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.io.IOUtils;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.osgi.util.ManifestElement;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+import org.sourcepit.common.manifest.osgi.BundleManifest;
+import org.sourcepit.common.manifest.osgi.resource.BundleManifestResourceImpl;
+import org.sourcepit.common.utils.io.IOOperation;
+import org.sourcepit.common.utils.lang.Exceptions;
+
+public class BundleHeaders {
+   private final byte[] rawManifest;
+
+   private final Map<String, String> headers;
+
+   private BundleManifest manifest;
+
+   private BundleHeaders(byte[] rawManifest, Map<String, String> headers) {
+      this.rawManifest = rawManifest;
+      this.headers = Collections.unmodifiableMap(headers);
+   }
+
+   public static BundleHeaders read(File location) {
+      final byte[][] rawManifest = new byte[1][];
+      new IOOperation<InputStream>(osgiIn(location, "META-INF/MANIFEST.MF")) {
+         @Override
+         protected void run(InputStream inputStream) throws IOException {
+            rawManifest[0] = IOUtils.toByteArray(inputStream);
+         }
+      }.run();
+      return parse(rawManifest[0]);
+   }
+
+   public static BundleHeaders parse(byte[] rawManifest) {
+      final Map<String, String> headers = new LinkedHashMap<String, String>();
+
+      // continuation lines are joined on the raw bytes, a multibyte character may be split across the fold
+      String name = null;
+      ByteArrayOutputStream value = null;
+
+      int lineStart = 0;
+      final int length = rawManifest.length;
+      while (lineStart < length) {
+         int lineEnd = lineStart;
+         while (lineEnd < length && rawManifest[lineEnd] != '\n' && rawManifest[lineEnd] != '\r') {
+            lineEnd++;
+         }
+
+         if (lineEnd == lineStart) {
+            // an empty line terminates the main section
+            break;
+         }
+
+         if (rawManifest[lineStart] == ' ') {
+            if (value != null) {
+               value.write(rawManifest, lineStart + 1, lineEnd - lineStart - 1);
+            }
+         }
+         else {
+            if (name != null) {
+               headers.put(name, decode(value));
+            }
+            int colon = lineStart;
+            while (colon < lineEnd && rawManifest[colon] != ':') {
+               colon++;
+            }
+            if (colon == lineEnd) {
+               name = null;
+               value = null;
+            }
+            else {
+               name = decode(rawManifest, lineStart, colon - lineStart).trim();
+               value = new ByteArrayOutputStream(lineEnd - colon);
+               value.write(rawManifest, colon + 1, lineEnd - colon - 1);
+            }
+         }
+
+         lineStart = lineEnd;
+         if (lineStart < length && rawManifest[lineStart] == '\r') {
+            lineStart++;
+         }
+         if (lineStart < length && rawManifest[lineStart] == '\n') {
+            lineStart++;
+         }
+      }
+
+      if (name != null) {
+         headers.put(name, decode(value));
+      }
+
+      return new BundleHeaders(rawManifest, headers);
+   }
+
+   private static String decode(ByteArrayOutputStream value) {
+      try {
+         return value.toString("UTF-8").trim();
+      }
+      catch (UnsupportedEncodingException e) {
+         throw Exceptions.pipe(e);
+      }
+   }
+
+   private static String decode(byte[] bytes, int offset, int length) {
+      try {
+         return new String(bytes, offset, length, "UTF-8");
+      }
+      catch (UnsupportedEncodingException e) {
+         throw Exceptions.pipe(e);
+      }
+   }
+
+   public int getManifestSize() {
+      return rawManifest.length;
+   }
+
+   public Map<String, String> getHeaders() {
+      return headers;
+   }
+
+   public String getHeaderValue(String name) {
+      return headers.get(name);
+   }
+
+   public Dictionary<String, String> toDictionary() {
+      final Dictionary<String, String> dictionary = new Hashtable<String, String>(headers.size());
+      for (Entry<String, String> header : headers.entrySet()) {
+         dictionary.put(header.getKey(), header.getValue());
+      }
+      return dictionary;
+   }
+
+   public List<String> getBundleClassPath() {
+      final String value = headers.get(Constants.BUNDLE_CLASSPATH);
+      if (value == null) {
+         return null;
+      }
+      final ManifestElement[] elements;
+      try {
+         elements = ManifestElement.parseHeader(Constants.BUNDLE_CLASSPATH, value);
+      }
+      catch (BundleException e) {
+         throw Exceptions.pipe(e);
+      }
+      final List<String> paths = new ArrayList<String>();
+      if (elements != null) {
+         for (ManifestElement element : elements) {
+            Collections.addAll(paths, element.getValueComponents());
+         }
+      }
+      return paths;
+   }
+
+   public synchronized BundleManifest getManifest() {
+      if (manifest == null) {
+         final Resource resource = new BundleManifestResourceImpl();
+         try {
+            resource.load(new ByteArrayInputStream(rawManifest), null);
+         }
+         catch (IOException e) {
+            throw Exceptions.pipe(e);
+         }
+         manifest = (BundleManifest) resource.getContents().get(0);
+         resource.getContents().clear();
+      }
+      return manifest;
+   }
+}
@@ -17,27 +17,22 @@
 package org.sourcepit.mavenizor.state;
 
 import static org.sourcepit.common.utils.io.IO.cpIn;
-import static org.sourcepit.common.utils.io.IO.osgiIn;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Dictionary;
-import java.util.Hashtable;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
 import java.util.StringTokenizer;
 
-import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.osgi.service.resolver.BundleDescription;
 import org.eclipse.osgi.service.resolver.State;
 import org.eclipse.osgi.service.resolver.StateObjectFactory;
 import org.osgi.framework.BundleException;
 import org.osgi.framework.Version;
-import org.sourcepit.common.manifest.osgi.BundleManifest;
-import org.sourcepit.common.manifest.osgi.resource.BundleManifestResourceImpl;
 import org.sourcepit.common.utils.adapt.Adapters;
 import org.sourcepit.common.utils.io.IOOperation;
 import org.sourcepit.common.utils.lang.Exceptions;
@@ -60,6 +55,8 @@ public class OsgiStateBuilder {
 
    private long currentId;
 
+   private long bytesRead;
+
    public OsgiStateBuilder() {
       this(Thread.currentThread().getContextClassLoader());
    }
@@ -78,40 +75,30 @@ public class OsgiStateBuilder {
       state.addBundle(createBundle(location));
    }
 
+   /**
+    * Returns the number of manifest bytes read by {@link #addBundle(File)}.
+    */
+   public long getBytesRead() {
+      return bytesRead;
+   }
+
    private BundleDescription createBundle(File location) {
-      final BundleManifest manifest = readManifest(location);
-      final Dictionary<String, String> headers = toDictionary(manifest);
+      // the EMF manifest is parsed lazily from the headers, see BundleAdapterFactory
+      final BundleHeaders headers = BundleHeaders.read(location);
+      bytesRead += headers.getManifestSize();
       final BundleDescription bundle;
       try {
-         bundle = stateFactory.createBundleDescription(state, headers, location.getAbsolutePath(), currentId++);
+         bundle = stateFactory.createBundleDescription(state, headers.toDictionary(), location.getAbsolutePath(),
+            currentId++);
       }
       catch (BundleException e) {
          throw Exceptions.pipe(e);
       }
       Adapters.addAdapter(bundle, location);
-      Adapters.addAdapter(bundle, manifest);
+      Adapters.addAdapter(bundle, headers);
       return bundle;
    }
 
-   private static Dictionary<String, String> toDictionary(final BundleManifest manifest) {
-      final Dictionary<String, String> headers = new Hashtable<String, String>(manifest.getHeaders().size());
-      for (Entry<String, String> header : manifest.getHeaders()) {
-         headers.put(header.getKey(), header.getValue());
-      }
-      return headers;
-   }
-
-   private static BundleManifest readManifest(File location) {
-      final Resource resource = new BundleManifestResourceImpl();
-      new IOOperation<InputStream>(osgiIn(location, "META-INF/MANIFEST.MF")) {
-         @Override
-         protected void run(InputStream inputStream) throws IOException {
-            resource.load(inputStream, null);
-         }
-      }.run();
-      return (BundleManifest) resource.getContents().get(0);
-   }
-
    @SuppressWarnings({ "rawtypes", "unchecked" })
    public void addPlatformProperties(Map properties) {
       final Dictionary<Object, Object> platformProperties = getPlatformProperties();
@@ -163,7 +150,7 @@ public class OsgiStateBuilder {
    }
 
    @SuppressWarnings("unchecked")
-   private Dictionary<Object, Object> getPlatformProperties() {
+   public Dictionary<Object, Object> getPlatformProperties() {
       return state.getPlatformProperties()[0];
    }
 }
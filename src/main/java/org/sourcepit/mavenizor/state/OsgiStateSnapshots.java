@@ -0,0 +1,180 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.state;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.osgi.service.resolver.State;
+import org.eclipse.osgi.service.resolver.StateObjectFactory;
+import org.sourcepit.common.utils.lang.Exceptions;
+
+public class OsgiStateSnapshots {
+   private final File snapshotsDir;
+
+   private final StateObjectFactory stateFactory;
+
+   public OsgiStateSnapshots(File snapshotsDir) {
+      this.snapshotsDir = snapshotsDir;
+      stateFactory = StateObjectFactory.defaultFactory;
+   }
+
+   public static String computeKey(Collection<File> bundleLocations, Dictionary<Object, Object> platformProperties) {
+      final List<String> lines = new ArrayList<String>(bundleLocations.size());
+      for (File bundleLocation : bundleLocations) {
+         // the manifest of a directory bundle changes, the directory itself not necessarily
+         final File file = bundleLocation.isDirectory()
+            ? new File(bundleLocation, "META-INF/MANIFEST.MF")
+            : bundleLocation;
+         lines.add(bundleLocation.getAbsolutePath() + ";" + file.length() + ";" + file.lastModified());
+      }
+      Collections.sort(lines);
+
+      final List<String> properties = new ArrayList<String>(platformProperties.size());
+      final Enumeration<Object> keys = platformProperties.keys();
+      while (keys.hasMoreElements()) {
+         final Object key = keys.nextElement();
+         properties.add(key + "=" + toString(platformProperties.get(key)));
+      }
+      Collections.sort(properties);
+      lines.addAll(properties);
+
+      final MessageDigest digest;
+      try {
+         digest = MessageDigest.getInstance("SHA-1");
+         for (String line : lines) {
+            digest.update(line.getBytes("UTF-8"));
+            digest.update((byte) '\n');
+         }
+      }
+      catch (NoSuchAlgorithmException e) {
+         throw Exceptions.pipe(e);
+      }
+      catch (UnsupportedEncodingException e) {
+         throw Exceptions.pipe(e);
+      }
+
+      final StringBuilder sb = new StringBuilder();
+      for (byte b : digest.digest()) {
+         sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+         sb.append(Character.forDigit(b & 0xF, 16));
+      }
+      return sb.toString();
+   }
+
+   private static String toString(Object value) {
+      if (value instanceof Collection<?>) {
+         final List<String> values = new ArrayList<String>();
+         for (Object object : (Collection<?>) value) {
+            values.add(String.valueOf(object));
+         }
+         Collections.sort(values);
+         return values.toString();
+      }
+      if (value instanceof String[]) {
+         final List<String> values = new ArrayList<String>();
+         Collections.addAll(values, (String[]) value);
+         Collections.sort(values);
+         return values.toString();
+      }
+      return String.valueOf(value);
+   }
+
+   public State load(String key) {
+      final File snapshotDir = new File(snapshotsDir, key);
+      if (!snapshotDir.isDirectory()) {
+         return null;
+      }
+      try {
+         return stateFactory.readState(snapshotDir);
+      }
+      catch (IOException e) {
+         // corrupt or written by an incompatible Equinox version
+         FileUtils.deleteQuietly(snapshotDir);
+         return null;
+      }
+   }
+
+   public void save(String key, State state) {
+      // keep only the latest snapshot
+      final File[] snapshotDirs = snapshotsDir.listFiles();
+      if (snapshotDirs != null) {
+         for (File snapshotDir : snapshotDirs) {
+            FileUtils.deleteQuietly(snapshotDir);
+         }
+      }
+
+      final File snapshotDir = new File(snapshotsDir, key);
+      snapshotDir.mkdirs();
+
+      // the state writer only supports String and String[] platform property values
+      final Map<Object, Object> replaced = replaceCollectionValues(state);
+      try {
+         stateFactory.writeState(state, snapshotDir);
+      }
+      catch (IOException e) {
+         FileUtils.deleteQuietly(snapshotDir);
+         throw Exceptions.pipe(e);
+      }
+      finally {
+         restoreCollectionValues(state, replaced);
+      }
+   }
+
+   @SuppressWarnings("unchecked")
+   private static Map<Object, Object> replaceCollectionValues(State state) {
+      final Map<Object, Object> replaced = new HashMap<Object, Object>();
+      final Dictionary<Object, Object> properties = state.getPlatformProperties()[0];
+      final Enumeration<Object> keys = properties.keys();
+      while (keys.hasMoreElements()) {
+         final Object key = keys.nextElement();
+         final Object value = properties.get(key);
+         if (value instanceof Collection<?>) {
+            final Collection<?> collection = (Collection<?>) value;
+            final String[] values = new String[collection.size()];
+            int i = 0;
+            for (Object object : collection) {
+               values[i++] = String.valueOf(object);
+            }
+            replaced.put(key, value);
+            properties.put(key, values);
+         }
+      }
+      return replaced;
+   }
+
+   @SuppressWarnings("unchecked")
+   private static void restoreCollectionValues(State state, Map<Object, Object> replaced) {
+      final Dictionary<Object, Object> properties = state.getPlatformProperties()[0];
+      for (Entry<Object, Object> entry : replaced.entrySet()) {
+         properties.put(entry.getKey(), entry.getValue());
+      }
+   }
+}
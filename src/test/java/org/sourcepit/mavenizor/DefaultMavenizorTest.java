@@ -18,8 +18,11 @@ package org.sourcepit.mavenizor;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.sourcepit.mavenizor.MavenizorTestHarness.addBundleRequirement;
 import static org.sourcepit.mavenizor.MavenizorTestHarness.addEmbeddedLibrary;
 import static org.sourcepit.mavenizor.MavenizorTestHarness.getBundle;
@@ -29,6 +32,7 @@ import static org.sourcepit.mavenizor.MavenizorTestHarness.newState;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -154,6 +158,14 @@ public class DefaultMavenizorTest extends AbstractMavenizorTest {
       assertThat(pom.getArtifactId(), IsEqual.equalTo("wurst"));
       assertNotNull(pom.getVersion());
       assertThat(pom.getDependencies().size(), Is.is(0));
+
+      // scanning and extracting the library is booked to the bundle
+      final RunStatistics statistics = request.getStatistics();
+      final RunStatistics.Cost cost = statistics.getBundleCosts().get(0);
+      assertThat(cost.getId(), IsEqual.equalTo(bundle.toString()));
+      assertTrue(cost.getBytesCopied() > 0L);
+      assertThat(cost.getBytesCopied(), Is.is(statistics.getBytesCopied()));
+      assertThat(cost.getBytesRead(), Is.is(statistics.getBytesRead()));
    }
 
    @Test
@@ -448,6 +460,125 @@ public class DefaultMavenizorTest extends AbstractMavenizorTest {
    }
 
 
+   @Test
+   public void testParallelConversion() throws IOException {
+      final ProjectKey libGav = new ArtifactKeyBuilder().setGroupId("hans")
+         .setArtifactId("wurst")
+         .setType("jar")
+         .setVersion("3")
+         .toArtifactKey()
+         .getProjectKey();
+
+      BundleManifest manifest1 = newManifest("org.sourcepit.testbundle", "1.0.0.qualifier");
+      File bundleDir = newBundle(bundlesDir, manifest1);
+      addEmbeddedLibrary(bundleDir, manifest1, ".");
+      addEmbeddedLibrary(bundleDir, manifest1, "embedded.jar", libGav);
+
+      BundleManifest manifest2 = newManifest("org.sourcepit.testbundle2", "1.0.0.qualifier");
+      newBundle(bundlesDir, manifest2);
+      addBundleRequirement(manifest2, manifest1.getBundleSymbolicName().getSymbolicName(), "0.0.0");
+      manifest2.eResource().save(null);
+
+      BundleManifest manifest3 = newManifest("org.sourcepit.testbundle3", "1.0.0.qualifier");
+      newBundle(bundlesDir, manifest3);
+      addBundleRequirement(manifest3, manifest2.getBundleSymbolicName().getSymbolicName(), "0.0.0");
+      manifest3.eResource().save(null);
+
+      State osgiState = newState(bundlesDir, manifest1, manifest2, manifest3);
+
+      Mavenizor.Request request = newRequest(osgiState, TargetType.JAVA);
+      Mavenizor.Result expected = mavenizor.mavenize(request);
+
+      request = newRequest(osgiState, TargetType.JAVA);
+      request.setConversionThreads(4);
+      Mavenizor.Result actual = mavenizor.mavenize(request);
+
+      assertThat(actual.getConverterResults().size(), Is.is(3));
+      assertThat(actual.getArtifactBundles().size(), Is.is(expected.getArtifactBundles().size()));
+      for (int i = 0; i < expected.getArtifactBundles().size(); i++) {
+         Model expectedPom = expected.getArtifactBundles().get(i).getPom();
+         Model actualPom = actual.getArtifactBundles().get(i).getPom();
+         assertThat(actualPom.getArtifactId(), IsEqual.equalTo(expectedPom.getArtifactId()));
+         assertThat(actualPom.getDependencies().size(), Is.is(expectedPom.getDependencies().size()));
+         for (int j = 0; j < expectedPom.getDependencies().size(); j++) {
+            assertThat(actualPom.getDependencies().get(j).getArtifactId(),
+               IsEqual.equalTo(expectedPom.getDependencies().get(j).getArtifactId()));
+         }
+      }
+   }
+
+   @Test
+   public void testSliceResult() throws IOException {
+      BundleManifest manifest1 = newManifest("org.sourcepit.testbundle", "1.0.0.qualifier");
+      newBundle(bundlesDir, manifest1);
+
+      BundleManifest manifest2 = newManifest("org.sourcepit.testbundle2", "1.0.0.qualifier");
+      newBundle(bundlesDir, manifest2);
+      addBundleRequirement(manifest2, manifest1.getBundleSymbolicName().getSymbolicName(), "0.0.0");
+      manifest2.eResource().save(null);
+
+      BundleManifest manifest3 = newManifest("org.sourcepit.testbundle3", "1.0.0.qualifier");
+      newBundle(bundlesDir, manifest3);
+
+      State osgiState = newState(bundlesDir, manifest1, manifest2, manifest3);
+
+      Mavenizor.Result result = mavenizor.mavenize(newRequest(osgiState, TargetType.JAVA));
+      assertThat(result.getConverterResults().size(), Is.is(3));
+
+      BundleDescription bundle2 = getBundle(osgiState, "org.sourcepit.testbundle2");
+      Mavenizor.Result slice = Mavenizor.Result.slice(result, Collections.singleton(bundle2));
+
+      assertThat(slice.getInputBundles().size(), Is.is(1));
+      assertThat(slice.getConverterResults().size(), Is.is(2));
+      assertNotNull(slice.getConverterResult(bundle2));
+      assertNotNull(slice.getConverterResult(getBundle(osgiState, "org.sourcepit.testbundle")));
+      assertThat(slice.getArtifactBundles().size(), Is.is(2));
+      for (ArtifactBundle artifactBundle : slice.getArtifactBundles()) {
+         assertTrue(result.getArtifactBundles().contains(artifactBundle));
+      }
+   }
+
+   @Test
+   public void testSliceRaisesFailureOfReachedBundle() throws IOException {
+      BundleManifest manifest1 = newManifest("org.sourcepit.testbundle", "1.0.0.qualifier");
+      newBundle(bundlesDir, manifest1);
+
+      BundleManifest manifest2 = newManifest("org.sourcepit.testbundle2", "1.0.0.qualifier");
+      newBundle(bundlesDir, manifest2);
+      addBundleRequirement(manifest2, manifest1.getBundleSymbolicName().getSymbolicName(), "0.0.0");
+      manifest2.eResource().save(null);
+
+      BundleManifest manifest3 = newManifest("org.sourcepit.testbundle3", "1.0.0.qualifier");
+      newBundle(bundlesDir, manifest3);
+
+      State osgiState = newState(bundlesDir, manifest1, manifest2, manifest3);
+
+      Mavenizor.Request request = newRequest(osgiState, TargetType.JAVA);
+      request.getOptions().put(manifest1.getBundleSymbolicName().getSymbolicName(), "invalid");
+      request.setFailFast(false);
+
+      Mavenizor.Result result = mavenizor.mavenize(request);
+      assertThat(result.getInputBundles().size(), Is.is(3));
+
+      BundleDescription bundle1 = getBundle(osgiState, "org.sourcepit.testbundle");
+      BundleDescription bundle2 = getBundle(osgiState, "org.sourcepit.testbundle2");
+      BundleDescription bundle3 = getBundle(osgiState, "org.sourcepit.testbundle3");
+      assertNotNull(result.getFailure(bundle1));
+      assertSame(result.getFailure(bundle1), result.getFailure(bundle2));
+      assertNull(result.getFailure(bundle3));
+
+      Mavenizor.Result slice = Mavenizor.Result.slice(result, Collections.singleton(bundle3));
+      assertNotNull(slice.getConverterResult(bundle3));
+
+      try {
+         Mavenizor.Result.slice(result, Collections.singleton(bundle2));
+         fail();
+      }
+      catch (RuntimeException e) {
+         assertSame(result.getFailure(bundle1), e);
+      }
+   }
+
    private Mavenizor.Request newRequest(State osgiState, TargetType targetType) {
       final Mavenizor.Request request = new Mavenizor.Request();
       request.setState(osgiState);
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hamcrest.core.Is;
+import org.hamcrest.core.IsEqual;
+import org.junit.Assume;
+import org.junit.Test;
+import org.sourcepit.mavenizor.MavenizorEvents.Type;
+
+public class MavenizorEventsTest {
+   @Test
+   public void testNoRecording() {
+      assertFalse(MavenizorEvents.isRecording());
+      for (Type type : Type.values()) {
+         final MavenizorEvents.Event event = MavenizorEvents.begin(type);
+         assertNotNull(event);
+         event.setBundle("foo").setGav("foo:foo:1").setBytes(42L).commit();
+      }
+   }
+
+   @Test
+   public void testRecording() throws Exception {
+      // the Flight Recorder API is only available on newer JVMs, so it is used reflectively like in MavenizorEvents
+      final Class<?> recordingClass = loadClass("jdk.jfr.Recording");
+      Assume.assumeNotNull(recordingClass);
+
+      final File file = File.createTempFile("mavenizor", ".jfr");
+      final Object recording = recordingClass.newInstance();
+      try {
+         recordingClass.getMethod("start").invoke(recording);
+         Assume.assumeTrue(MavenizorEvents.isRecording());
+
+         MavenizorEvents.begin(Type.ARTIFACT_UPLOAD).setBundle("foo").setGav("foo:foo:1").setBytes(42L).commit();
+         MavenizorEvents.begin(Type.CHECKSUM).setBytes(7L).commit();
+
+         recordingClass.getMethod("stop").invoke(recording);
+         assertFalse(MavenizorEvents.isRecording());
+         recordingClass.getMethod("dump", java.nio.file.Path.class).invoke(recording, file.toPath());
+      }
+      finally {
+         recordingClass.getMethod("close").invoke(recording);
+      }
+
+      final Map<String, Object> nameToEventMap = new HashMap<String, Object>();
+      try {
+         final Method readAllEvents = loadClass("jdk.jfr.consumer.RecordingFile").getMethod("readAllEvents",
+            java.nio.file.Path.class);
+         for (Object event : (List<?>) readAllEvents.invoke(null, file.toPath())) {
+            final Object eventType = invoke(event, "getEventType");
+            final String name = (String) invoke(eventType, "getName");
+            if (name.startsWith("org.sourcepit.mavenizor.")) {
+               assertNull(nameToEventMap.put(name, event));
+            }
+         }
+      }
+      finally {
+         file.delete();
+      }
+      assertThat(nameToEventMap.size(), Is.is(2));
+
+      Object event = nameToEventMap.get("org.sourcepit.mavenizor.ArtifactUpload");
+      assertNotNull(event);
+      assertThat(getValue(event, "bundle"), IsEqual.equalTo((Object) "foo"));
+      assertThat(getValue(event, "gav"), IsEqual.equalTo((Object) "foo:foo:1"));
+      assertThat(getValue(event, "bytes"), IsEqual.equalTo((Object) Long.valueOf(42L)));
+
+      event = nameToEventMap.get("org.sourcepit.mavenizor.Checksum");
+      assertNotNull(event);
+      assertNull(getValue(event, "bundle"));
+      assertNull(getValue(event, "gav"));
+      assertThat(getValue(event, "bytes"), IsEqual.equalTo((Object) Long.valueOf(7L)));
+   }
+
+   private static Class<?> loadClass(String name) {
+      try {
+         return Class.forName(name);
+      }
+      catch (ClassNotFoundException e) {
+         return null;
+      }
+   }
+
+   private static Object invoke(Object target, String methodName) throws Exception {
+      return target.getClass().getMethod(methodName).invoke(target);
+   }
+
+   private static Object getValue(Object event, String field) throws Exception {
+      return event.getClass().getMethod("getValue", String.class).invoke(event, field);
+   }
+}
@@ -17,12 +17,14 @@
 package org.sourcepit.mavenizor;
 
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.inject.Inject;
 
@@ -155,4 +157,37 @@ public class OptionsHelperTest extends InjectedTest {
       assertFalse(optionsHelper.isMatch(requirement, options, "@murks", false));
       assertFalse(optionsHelper.isMatch(requirement, options, "@foo", false));
    }
+
+   @Test
+   public void testOptionsIndex() {
+      PropertiesMap options = new LinkedPropertiesMap();
+      options.put("org.sourcepit.*@foo", "org.sourcepit.bundle.b");
+      options.put("org.**,!org.sourcepit.bundle.a@foo", "murks");
+      options.put("org.sourcepit.bundle.a@bar", "true");
+
+      BundleDescription from = mock(BundleDescription.class);
+      when(from.getSymbolicName()).thenReturn("org.sourcepit.bundle.a");
+      when(from.getVersion()).thenReturn(new Version("1.0.0.qualifier"));
+
+      BundleDescription to = mock(BundleDescription.class);
+      when(to.getSymbolicName()).thenReturn("org.sourcepit.bundle.b");
+      when(to.getVersion()).thenReturn(new Version("1.0.0.qualifier"));
+
+      Requirement requirement = new Requirement();
+      requirement.setFrom(from);
+      requirement.setTo(to);
+
+      OptionsIndex index = new OptionsIndex(options);
+
+      Map<String, String> bundleOptions = index.getBundleOptions(from, "@foo");
+      assertThat(bundleOptions.size(), Is.is(1));
+      assertThat(bundleOptions.get("org.sourcepit.*@foo"), IsEqual.equalTo("org.sourcepit.bundle.b"));
+      assertSame(bundleOptions, index.getBundleOptions(from, "@foo"));
+      assertThat(index.getBundleOptions(to, "@foo").size(), Is.is(2));
+
+      assertTrue(optionsHelper.isMatch(requirement, index, "@foo", false));
+      assertFalse(optionsHelper.isMatch(requirement, index, "@murks", false));
+      assertTrue(optionsHelper.getBooleanValue(from, index, "@bar", false));
+      assertFalse(optionsHelper.getBooleanValue(to, index, "@bar", false));
+   }
 }
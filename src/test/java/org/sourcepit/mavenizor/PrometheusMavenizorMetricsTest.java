@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor;
+
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.hamcrest.core.IsEqual;
+import org.junit.Test;
+
+public class PrometheusMavenizorMetricsTest {
+   @Test
+   public void testCounter() {
+      final PrometheusMavenizorMetrics metrics = new PrometheusMavenizorMetrics();
+      metrics.increment("bundles_total", 1L, "directive", "mavenize");
+      metrics.increment("bundles_total", 2L, "directive", "mavenize");
+      metrics.increment("bundles_total", 1L, "directive", "omit");
+      metrics.increment("runs_total", 1L);
+
+      final StringBuilder expected = new StringBuilder();
+      expected.append("# TYPE bundles_total counter\n");
+      expected.append("bundles_total{directive=\"mavenize\"} 3\n");
+      expected.append("bundles_total{directive=\"omit\"} 1\n");
+      expected.append("# TYPE runs_total counter\n");
+      expected.append("runs_total 1\n");
+      assertThat(metrics.toText(), IsEqual.equalTo(expected.toString()));
+   }
+
+   @Test
+   public void testHistogram() {
+      final PrometheusMavenizorMetrics metrics = new PrometheusMavenizorMetrics();
+      metrics.recordTime("upload_seconds", 20000000L, "repository", "a\"b");
+      metrics.recordTime("upload_seconds", 2000000000L, "repository", "a\"b");
+      metrics.recordSize("size_bytes", 2048L);
+
+      final String text = metrics.toText();
+      assertTrue(text.contains("# TYPE upload_seconds histogram\n"));
+      assertTrue(text.contains("upload_seconds_bucket{repository=\"a\\\"b\",le=\"0.01\"} 0\n"));
+      assertTrue(text.contains("upload_seconds_bucket{repository=\"a\\\"b\",le=\"0.05\"} 1\n"));
+      assertTrue(text.contains("upload_seconds_bucket{repository=\"a\\\"b\",le=\"5.0\"} 2\n"));
+      assertTrue(text.contains("upload_seconds_bucket{repository=\"a\\\"b\",le=\"+Inf\"} 2\n"));
+      assertTrue(text.contains("upload_seconds_sum{repository=\"a\\\"b\"} 2.02\n"));
+      assertTrue(text.contains("upload_seconds_count{repository=\"a\\\"b\"} 2\n"));
+      assertTrue(text.contains("size_bytes_bucket{le=\"1024.0\"} 0\n"));
+      assertTrue(text.contains("size_bytes_bucket{le=\"10240.0\"} 1\n"));
+      assertTrue(text.contains("size_bytes_count 1\n"));
+   }
+
+   @Test
+   public void testStore() throws IOException {
+      final PrometheusMavenizorMetrics metrics = new PrometheusMavenizorMetrics();
+      final File dir = File.createTempFile("metrics", "");
+      dir.delete();
+      final File file = new File(dir, "metrics.prom");
+      try {
+         metrics.increment("runs_total", 1L);
+         metrics.store(file);
+         assertThat(FileUtils.readFileToString(file, "UTF-8"),
+            IsEqual.equalTo("# TYPE runs_total counter\nruns_total 1\n"));
+
+         // an instance holds the values of a single execution, storing again writes all of them
+         metrics.increment("runs_total", 1L);
+         metrics.store(file);
+         assertThat(FileUtils.readFileToString(file, "UTF-8"),
+            IsEqual.equalTo("# TYPE runs_total counter\nruns_total 2\n"));
+      }
+      finally {
+         FileUtils.deleteQuietly(dir);
+      }
+   }
+
+   @Test
+   public void testOddLabels() {
+      try {
+         new PrometheusMavenizorMetrics().increment("runs_total", 1L, "directive");
+         fail();
+      }
+      catch (IllegalArgumentException e) {
+      }
+   }
+}
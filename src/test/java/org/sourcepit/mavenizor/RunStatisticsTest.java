@@ -0,0 +1,147 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor;
+
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.hamcrest.core.Is;
+import org.hamcrest.core.IsEqual;
+import org.junit.Test;
+import org.sourcepit.mavenizor.RunStatistics.Phase;
+
+public class RunStatisticsTest {
+   private static final long MILLIS = 1000000L;
+
+   @Test
+   public void testNestedPhases() throws InterruptedException {
+      final RunStatistics statistics = new RunStatistics();
+
+      final RunStatistics.Timer outer = statistics.start(Phase.DEPENDENCY_ASSEMBLY);
+      Thread.sleep(20);
+      final RunStatistics.Timer inner = statistics.start(Phase.CONVERSION);
+      Thread.sleep(50);
+      inner.stop();
+      Thread.sleep(20);
+      outer.stop();
+
+      // time of the nested phase is not booked twice
+      final long dependencyAssembly = statistics.getWallTime(Phase.DEPENDENCY_ASSEMBLY);
+      final long conversion = statistics.getWallTime(Phase.CONVERSION);
+      assertTrue(dependencyAssembly >= 40 * MILLIS);
+      assertTrue(dependencyAssembly < conversion + 40 * MILLIS);
+      assertTrue(conversion >= 50 * MILLIS);
+      assertThat(statistics.getWallTime(Phase.DISTRIBUTION), Is.is(0L));
+   }
+
+   @Test
+   public void testWorkerBooksCpuTimeOnly() throws InterruptedException {
+      final RunStatistics statistics = new RunStatistics();
+
+      final Thread worker = new Thread() {
+         @Override
+         public void run() {
+            final RunStatistics.Timer timer = statistics.startWorker(Phase.CONVERSION);
+            final long end = System.nanoTime() + 50 * MILLIS;
+            while (System.nanoTime() < end) {
+               // burn cpu
+            }
+            timer.stop();
+         }
+      };
+      worker.start();
+      worker.join();
+
+      assertThat(statistics.getWallTime(Phase.CONVERSION), Is.is(0L));
+      if (RunStatistics.isCpuTimeSupported()) {
+         assertTrue(statistics.getCpuTime(Phase.CONVERSION) > 0L);
+      }
+   }
+
+   @Test
+   public void testCosts() {
+      final RunStatistics statistics = new RunStatistics();
+      statistics.addBundleCost("a", 10 * MILLIS, 0L, 0L);
+      statistics.addBundleCost("b", 30 * MILLIS, 0L, 0L);
+      statistics.addBundleCost("a", 30 * MILLIS, 512L, 256L);
+      statistics.addArtifactBundleCost("g:a:1", 5 * MILLIS);
+
+      final List<RunStatistics.Cost> bundleCosts = statistics.getBundleCosts();
+      assertThat(bundleCosts.size(), Is.is(2));
+
+      RunStatistics.Cost cost = bundleCosts.get(0);
+      assertThat(cost.getId(), IsEqual.equalTo("a"));
+      assertThat(cost.getTime(), Is.is(40 * MILLIS));
+      assertThat(cost.getBytesRead(), Is.is(512L));
+      assertThat(cost.getBytesCopied(), Is.is(256L));
+
+      cost = bundleCosts.get(1);
+      assertThat(cost.getId(), IsEqual.equalTo("b"));
+      assertThat(cost.getTime(), Is.is(30 * MILLIS));
+
+      final List<RunStatistics.Cost> artifactBundleCosts = statistics.getArtifactBundleCosts();
+      assertThat(artifactBundleCosts.size(), Is.is(1));
+      assertThat(artifactBundleCosts.get(0).getId(), IsEqual.equalTo("g:a:1"));
+   }
+
+   @Test
+   public void testThreadBytes() throws InterruptedException {
+      final RunStatistics statistics = new RunStatistics();
+      statistics.addBytesRead(100);
+      statistics.addBytesCopied(10);
+
+      final Thread thread = new Thread() {
+         @Override
+         public void run() {
+            statistics.addBytesRead(1000);
+            statistics.addBytesCopied(500);
+         }
+      };
+      thread.start();
+      thread.join();
+
+      assertThat(statistics.getBytesRead(), Is.is(1100L));
+      assertThat(statistics.getBytesCopied(), Is.is(510L));
+      assertThat(statistics.getThreadBytesRead(), Is.is(100L));
+      assertThat(statistics.getThreadBytesCopied(), Is.is(10L));
+   }
+
+   @Test
+   public void testToJson() {
+      final RunStatistics statistics = new RunStatistics();
+      statistics.addBundles(3);
+      statistics.addArtifacts(5);
+      statistics.addBytesRead(1024);
+      statistics.addBytesCopied(2048);
+      statistics.start(Phase.BUNDLE_RESOLUTION).stop();
+      statistics.setWallTime(2500 * MILLIS);
+      statistics.setMavenizationTime(1000 * MILLIS);
+
+      final String json = statistics.toJson();
+      assertTrue(json.contains("\n  \"wallTimeMillis\": 2500,\n"));
+      assertTrue(json.contains("\"bundlesPerSecond\": 3,"));
+      assertTrue(json.contains("\"bundleResolution\": { \"wallTimeMillis\": "));
+      assertTrue(json.contains("\"distribution\": { \"wallTimeMillis\": 0, \"cpuTimeMillis\": 0 }"));
+      assertTrue(json.contains("\"bundles\": 3,"));
+      assertTrue(json.contains("\"artifacts\": 5,"));
+      assertTrue(json.contains("\"bytesRead\": 1024,"));
+      assertTrue(json.contains("\"bytesCopied\": 2048,"));
+      assertTrue(json.contains("\"bytesUploaded\": 0\n"));
+   }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.repository.layout.ArtifactRepositoryLayout;
+import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.DefaultModelWriter;
+import org.apache.maven.model.io.ModelWriter;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.repository.RepositorySystem;
+import org.hamcrest.core.Is;
+import org.hamcrest.core.IsEqual;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.sourcepit.common.maven.model.MavenArtifact;
+import org.sourcepit.common.maven.model.MavenModelFactory;
+import org.sourcepit.common.utils.lang.PipedException;
+import org.sourcepit.mavenizor.AbstractMavenizorTest;
+import org.sourcepit.mavenizor.ArtifactBundle;
+import org.sourcepit.mavenizor.DefaultMavenizorMetrics;
+import org.sourcepit.mavenizor.MavenizorMetrics;
+import org.sourcepit.mavenizor.RunStatistics;
+import org.sourcepit.mavenizor.maven.ArtifactBundleDistributor.DistributionHandler;
+import org.sourcepit.mavenizor.maven.converter.ConvertedArtifact;
+import org.sourcepit.mavenizor.maven.converter.ConvertionDirective;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+
+public class ArtifactBundleDistributorTest extends AbstractMavenizorTest {
+   private static class RecordingHandler implements DistributionHandler {
+      private final List<String> distributed = new ArrayList<String>();
+
+      private final Set<String> gasInFlight = new HashSet<String>();
+
+      private final List<String> overlaps = new ArrayList<String>();
+
+      private final List<Collection<Artifact>> prepared = new ArrayList<Collection<Artifact>>();
+
+      private final RunStatistics statistics = new RunStatistics();
+
+      private final MavenizorMetrics metrics = new DefaultMavenizorMetrics();
+
+      public synchronized void prepare(Collection<Artifact> artifacts) {
+         prepared.add(artifacts);
+      }
+
+      public void distribute(Artifact artifact, boolean forceOverwrite) {
+         final String ga = artifact.getGroupId() + ":" + artifact.getArtifactId();
+         synchronized (this) {
+            if (!gasInFlight.add(ga)) {
+               overlaps.add(ga);
+            }
+         }
+         try {
+            Thread.sleep(5);
+         }
+         catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         synchronized (this) {
+            gasInFlight.remove(ga);
+            distributed.add(ga + ":" + artifact.getVersion() + ":" + artifact.getType());
+         }
+         if (artifact.getArtifactId().startsWith("broken")) {
+            throw new IllegalStateException("Failed to distribute " + artifact);
+         }
+      }
+
+      public RunStatistics getStatistics() {
+         return statistics;
+      }
+
+      public MavenizorMetrics getMetrics() {
+         return metrics;
+      }
+   }
+
+   private ArtifactBundleDistributor distributor;
+
+   private File workingDir;
+
+   @Before
+   public void setUpDistributor() {
+      final RepositorySystem repositorySystem = mock(RepositorySystem.class, new Answer<Artifact>() {
+         public Artifact answer(InvocationOnMock invocation) throws Throwable {
+            final String method = invocation.getMethod().getName();
+            final Object[] args = invocation.getArguments();
+            if ("createArtifact".equals(method) && args.length == 4) {
+               return newArtifact((String) args[0], (String) args[1], (String) args[2], (String) args[3], null);
+            }
+            if ("createArtifactWithClassifier".equals(method)) {
+               return newArtifact((String) args[0], (String) args[1], (String) args[2], (String) args[3],
+                  (String) args[4]);
+            }
+            throw new UnsupportedOperationException(method);
+         }
+      });
+
+      distributor = Guice.createInjector(new AbstractModule() {
+         @Override
+         protected void configure() {
+            bind(RepositorySystem.class).toInstance(repositorySystem);
+            bind(ArtifactRepositoryLayout.class).to(DefaultRepositoryLayout.class);
+            bind(ModelWriter.class).to(DefaultModelWriter.class);
+         }
+      }).getInstance(ArtifactBundleDistributor.class);
+
+      workingDir = getWs().getRoot();
+   }
+
+   @Test
+   public void testFailureAggregation() {
+      final List<ArtifactBundle> artifactBundles = new ArrayList<ArtifactBundle>();
+      artifactBundles.add(newArtifactBundle("foo", "1"));
+      artifactBundles.add(newArtifactBundle("broken-a", "1"));
+      artifactBundles.add(newArtifactBundle("bar", "1"));
+      artifactBundles.add(newArtifactBundle("broken-b", "1"));
+
+      final RecordingHandler handler = new RecordingHandler();
+      try {
+         distributor.distribute(workingDir, artifactBundles, handler, true, 2);
+         fail();
+      }
+      catch (PipedException e) {
+         final MojoExecutionException cause = (MojoExecutionException) e.getCause();
+         assertThat(cause.getMessage(), IsEqual.equalTo("Failed to distribute the artifact bundles of 2 of 4 "
+            + "groupId:artifactId groups. See build log for details."));
+         assertTrue(cause.getCause() instanceof IllegalStateException);
+      }
+
+      // the other groups are distributed nevertheless
+      assertTrue(handler.distributed.contains("org.sourcepit:foo:1:pom"));
+      assertTrue(handler.distributed.contains("org.sourcepit:foo:1:jar"));
+      assertTrue(handler.distributed.contains("org.sourcepit:bar:1:pom"));
+      assertTrue(handler.distributed.contains("org.sourcepit:bar:1:jar"));
+   }
+
+   @Test
+   public void testPerGAOrdering() {
+      final List<ArtifactBundle> artifactBundles = new ArrayList<ArtifactBundle>();
+      for (int i = 1; i <= 3; i++) {
+         artifactBundles.add(newArtifactBundle("foo", String.valueOf(i)));
+         artifactBundles.add(newArtifactBundle("bar", String.valueOf(i)));
+         artifactBundles.add(newArtifactBundle("baz", String.valueOf(i)));
+      }
+
+      final RecordingHandler handler = new RecordingHandler();
+      distributor.distribute(workingDir, artifactBundles, handler, true, 3);
+
+      assertThat(handler.overlaps, IsEqual.equalTo((List<String>) new ArrayList<String>()));
+      assertThat(handler.distributed.size(), Is.is(18));
+      for (String artifactId : Arrays.asList("foo", "bar", "baz")) {
+         final List<String> gaDistributed = new ArrayList<String>();
+         for (String gav : handler.distributed) {
+            if (gav.startsWith("org.sourcepit:" + artifactId + ":")) {
+               gaDistributed.add(gav);
+            }
+         }
+         final String prefix = "org.sourcepit:" + artifactId + ":";
+         assertThat(gaDistributed, IsEqual.equalTo(Arrays.asList(prefix + "1:pom", prefix + "1:jar", prefix + "2:pom",
+            prefix + "2:jar", prefix + "3:pom", prefix + "3:jar")));
+      }
+   }
+
+   @Test
+   public void testPrepare() {
+      final List<ArtifactBundle> artifactBundles = new ArrayList<ArtifactBundle>();
+      artifactBundles.add(newArtifactBundle("foo", "1"));
+
+      final ArtifactBundle replaced = newArtifactBundle("bar", "1");
+      replaced.getArtifacts().clear();
+      replaced.getArtifacts().add(new ConvertedArtifact(newMavenArtifact(), ConvertionDirective.REPLACE, false));
+      artifactBundles.add(replaced);
+
+      RecordingHandler handler = new RecordingHandler();
+      distributor.distribute(workingDir, artifactBundles, handler, false, 1);
+      assertThat(handler.prepared.size(), Is.is(1));
+
+      final Collection<Artifact> pomArtifacts = handler.prepared.get(0);
+      assertThat(pomArtifacts.size(), Is.is(1));
+      final Artifact pomArtifact = pomArtifacts.iterator().next();
+      assertThat(pomArtifact.getArtifactId(), IsEqual.equalTo("foo"));
+      assertThat(pomArtifact.getType(), IsEqual.equalTo("pom"));
+      assertNull(pomArtifact.getFile());
+
+      handler = new RecordingHandler();
+      distributor.distribute(workingDir, artifactBundles, handler, true, 1);
+      assertTrue(handler.prepared.isEmpty());
+   }
+
+   private ArtifactBundle newArtifactBundle(String artifactId, String version) {
+      final Model pom = new Model();
+      pom.setModelVersion("4.0.0");
+      pom.setGroupId("org.sourcepit");
+      pom.setArtifactId(artifactId);
+      pom.setVersion(version);
+
+      final ArtifactBundle artifactBundle = new ArtifactBundle();
+      artifactBundle.setPom(pom);
+      artifactBundle.getArtifacts().add(new ConvertedArtifact(newMavenArtifact(), ConvertionDirective.MAVENIZE, false));
+      return artifactBundle;
+   }
+
+   private MavenArtifact newMavenArtifact() {
+      final MavenArtifact mavenArtifact = MavenModelFactory.eINSTANCE.createMavenArtifact();
+      mavenArtifact.setType("jar");
+      mavenArtifact.setFile(new File(workingDir, "artifact.jar"));
+      return mavenArtifact;
+   }
+
+   private static Artifact newArtifact(String groupId, String artifactId, String version, String type,
+      String classifier) {
+      final DefaultArtifactHandler artifactHandler = new DefaultArtifactHandler(type);
+      return new DefaultArtifact(groupId, artifactId, version, null, type, classifier, artifactHandler);
+   }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.hamcrest.core.Is;
+import org.hamcrest.core.IsEqual;
+import org.junit.Test;
+import org.sourcepit.mavenizor.AbstractMavenizorTest;
+
+public class ChecksumLedgerTest extends AbstractMavenizorTest {
+   private static final String SHA1_FOO = "0beec7b5ea3f0fdbc95d0dd47f3c5bc275da8a33";
+
+   private static final String SHA1_BAR = "62cdb7020ff920e5aa642c3d4066950dd1f01f4d";
+
+   @Test
+   public void testGetSha1() throws IOException {
+      final File file = new File(getWs().getRoot(), "foo.jar");
+      FileUtils.writeStringToFile(file, "foo", "UTF-8");
+      final long lastModified = file.lastModified();
+
+      final File ledgerFile = new File(getWs().getRoot(), "ledger.properties");
+
+      ChecksumLedger ledger = new ChecksumLedger(ledgerFile, new FileDigests());
+      ledger.load();
+      assertThat(ledger.getSha1(file), IsEqual.equalTo(SHA1_FOO));
+      ledger.save();
+      assertTrue(ledgerFile.exists());
+
+      // same size and mtime, the recorded checksum is trusted
+      FileUtils.writeStringToFile(file, "bar", "UTF-8");
+      file.setLastModified(lastModified);
+
+      ledger = new ChecksumLedger(ledgerFile, new FileDigests());
+      ledger.load();
+      assertThat(ledger.getSha1(file), IsEqual.equalTo(SHA1_FOO));
+      assertThat(ledger.getHits(), Is.is(1L));
+      assertThat(ledger.getMisses(), Is.is(0L));
+
+      file.setLastModified(lastModified - 2000);
+      assertThat(ledger.getSha1(file), IsEqual.equalTo(SHA1_BAR));
+      assertThat(ledger.getHits(), Is.is(1L));
+      assertThat(ledger.getMisses(), Is.is(1L));
+
+      // entries of deleted files are dropped
+      assertTrue(file.delete());
+      ledger.save();
+      ledger = new ChecksumLedger(ledgerFile, new FileDigests());
+      ledger.load();
+      FileUtils.writeStringToFile(file, "bar", "UTF-8");
+      file.setLastModified(lastModified);
+      assertFalse(SHA1_FOO.equals(ledger.getSha1(file)));
+   }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.deployer.ArtifactDeployer;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
+import org.apache.maven.artifact.repository.MavenArtifactRepository;
+import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.impl.MetadataResolver;
+import org.eclipse.aether.impl.RepositoryConnectorProvider;
+import org.eclipse.aether.repository.LocalRepositoryManager;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.MetadataRequest;
+import org.eclipse.aether.resolution.MetadataResult;
+import org.eclipse.aether.spi.connector.ArtifactDownload;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.eclipse.aether.transfer.MetadataNotFoundException;
+import org.hamcrest.core.Is;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.slf4j.LoggerFactory;
+import org.sourcepit.mavenizor.AbstractMavenizorTest;
+
+public class DeploymentHandlerTest extends AbstractMavenizorTest {
+   private final List<MetadataRequest> metadataRequests = new ArrayList<MetadataRequest>();
+
+   private int downloads;
+
+   private int metadataResolutions;
+
+   private DeploymentHandler handler;
+
+   private RepositoryConnectorProvider connectorProvider;
+
+   private RepositorySystemSession repositorySession;
+
+   private MetadataResolver metadataResolver;
+
+   private ArtifactRepository localRepository;
+
+   private ArtifactRepository deploymentRepository;
+
+   @Before
+   public void setUpHandler() {
+      final File root = getWs().getRoot();
+
+      metadataResolver = mock(MetadataResolver.class, new Answer<List<MetadataResult>>() {
+         public List<MetadataResult> answer(InvocationOnMock invocation) throws Throwable {
+            @SuppressWarnings("unchecked")
+            final Collection<MetadataRequest> requests = (Collection<MetadataRequest>) invocation.getArguments()[1];
+            final List<MetadataResult> results = new ArrayList<MetadataResult>();
+            metadataResolutions++;
+            for (MetadataRequest request : requests) {
+               metadataRequests.add(request);
+               final MetadataResult result = new MetadataResult(request);
+               result.setException(new MetadataNotFoundException(request.getMetadata(), request.getRepository()));
+               results.add(result);
+            }
+            return results;
+         }
+      });
+
+      // every checksum lookup ends with "not found"
+      final RemoteRepository remoteRepository = new RemoteRepository.Builder("remote", "default", "file:/").build();
+      final RepositoryConnector connector = mock(RepositoryConnector.class, new Answer<Object>() {
+         public Object answer(InvocationOnMock invocation) throws Throwable {
+            if ("get".equals(invocation.getMethod().getName())) {
+               @SuppressWarnings("unchecked")
+               final Collection<ArtifactDownload> artifactDownloads = (Collection<ArtifactDownload>) invocation
+                  .getArguments()[0];
+               for (ArtifactDownload download : artifactDownloads) {
+                  downloads++;
+                  download.setException(new ArtifactNotFoundException(download.getArtifact(), remoteRepository));
+               }
+               return null;
+            }
+            return Mockito.RETURNS_DEFAULTS.answer(invocation);
+         }
+      });
+      connectorProvider = mock(RepositoryConnectorProvider.class,
+         new Answer<RepositoryConnector>() {
+            public RepositoryConnector answer(InvocationOnMock invocation) throws Throwable {
+               return connector;
+            }
+         });
+
+      final LocalRepositoryManager localRepositoryManager = mock(LocalRepositoryManager.class, new Answer<Object>() {
+         public Object answer(InvocationOnMock invocation) throws Throwable {
+            if ("getPathForLocalArtifact".equals(invocation.getMethod().getName())) {
+               return "checksum.sha1";
+            }
+            return Mockito.RETURNS_DEFAULTS.answer(invocation);
+         }
+      });
+      repositorySession = mock(RepositorySystemSession.class, new Answer<Object>() {
+         public Object answer(InvocationOnMock invocation) throws Throwable {
+            if ("getLocalRepositoryManager".equals(invocation.getMethod().getName())) {
+               return localRepositoryManager;
+            }
+            return Mockito.RETURNS_DEFAULTS.answer(invocation);
+         }
+      });
+
+      localRepository = newRepository("local", new File(root, "local"));
+      deploymentRepository = newRepository("remote", new File(root, "remote"));
+
+      handler = newHandler(0);
+   }
+
+   private DeploymentHandler newHandler(double requestsPerSecond) {
+      return new DeploymentHandler(LoggerFactory.getLogger(DeploymentHandlerTest.class), connectorProvider,
+         repositorySession, mock(ArtifactDeployer.class), localRepository, deploymentRepository, deploymentRepository,
+         metadataResolver, new FileDigests(), requestsPerSecond);
+   }
+
+   @Test
+   public void testPrepareResolvesSnapshotVersionsOnce() {
+      final Artifact snapshot = newArtifact("foo", "1.0.0-SNAPSHOT");
+      final Artifact otherSnapshot = newArtifact("bar", "1.0.0-SNAPSHOT");
+      final Artifact release = newArtifact("baz", "1.0.0");
+
+      handler.prepare(Arrays.asList(snapshot, otherSnapshot, release, snapshot));
+      assertThat(metadataRequests.size(), Is.is(2));
+
+      handler.prepare(Arrays.asList(snapshot, otherSnapshot));
+      assertThat(metadataRequests.size(), Is.is(2));
+
+      assertNull(handler.getTargetChecksum(snapshot));
+      assertNull(handler.getTargetChecksum(otherSnapshot));
+      assertNull(handler.getTargetChecksum(release));
+      assertThat(metadataRequests.size(), Is.is(2));
+      assertThat(downloads, Is.is(3));
+   }
+
+   @Test
+   public void testThrottledPrepareResolvesSnapshotVersionsOneByOne() {
+      final Artifact snapshot = newArtifact("foo", "1.0.0-SNAPSHOT");
+      final Artifact otherSnapshot = newArtifact("bar", "1.0.0-SNAPSHOT");
+
+      handler.prepare(Arrays.asList(snapshot, otherSnapshot));
+      assertThat(metadataRequests.size(), Is.is(2));
+      assertThat(metadataResolutions, Is.is(1));
+
+      // each request passes the throttle on its own
+      metadataRequests.clear();
+      metadataResolutions = 0;
+      newHandler(1000).prepare(Arrays.asList(snapshot, otherSnapshot));
+      assertThat(metadataRequests.size(), Is.is(2));
+      assertThat(metadataResolutions, Is.is(2));
+   }
+
+   @Test
+   public void testSnapshotDeploymentEvictsCachedVersion() {
+      final Artifact snapshot = newArtifact("foo", "1.0.0-SNAPSHOT");
+      final Artifact otherSnapshot = newArtifact("bar", "1.0.0-SNAPSHOT");
+
+      assertNull(handler.getTargetChecksum(snapshot));
+      assertNull(handler.getTargetChecksum(otherSnapshot));
+      assertThat(metadataRequests.size(), Is.is(2));
+
+      assertNull(handler.getTargetChecksum(snapshot));
+      assertThat(metadataRequests.size(), Is.is(2));
+
+      // the deployment creates a new timestamped version, which must be looked up again
+      handler.doDistribute(snapshot);
+      assertNull(handler.getTargetChecksum(snapshot));
+      assertThat(metadataRequests.size(), Is.is(3));
+
+      assertNull(handler.getTargetChecksum(otherSnapshot));
+      assertThat(metadataRequests.size(), Is.is(3));
+
+      handler.close();
+   }
+
+   private static ArtifactRepository newRepository(String id, File basedir) {
+      return new MavenArtifactRepository(id, basedir.toURI().toString(), new DefaultRepositoryLayout(),
+         new ArtifactRepositoryPolicy(), new ArtifactRepositoryPolicy());
+   }
+
+   private Artifact newArtifact(String artifactId, String version) {
+      final DefaultArtifact artifact = new DefaultArtifact("org.sourcepit", artifactId, version, null, "jar", null,
+         new DefaultArtifactHandler("jar"));
+      artifact.setFile(new File(getWs().getRoot(), artifactId + ".jar"));
+      return artifact;
+   }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven;
+
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.hamcrest.core.Is;
+import org.hamcrest.core.IsEqual;
+import org.junit.Test;
+import org.sourcepit.mavenizor.AbstractMavenizorTest;
+
+public class FileDigestsTest extends AbstractMavenizorTest {
+   @Test
+   public void testGetDigest() throws IOException {
+      final File file = new File(getWs().getRoot(), "foo.jar");
+      FileUtils.writeStringToFile(file, "foo", "UTF-8");
+
+      final FileDigests fileDigests = new FileDigests();
+
+      assertThat(fileDigests.getDigest(file, FileDigests.MD5), IsEqual.equalTo("acbd18db4cc2f85cedef654fccc4a4d8"));
+      assertThat(fileDigests.getDigest(file, FileDigests.SHA1),
+         IsEqual.equalTo("0beec7b5ea3f0fdbc95d0dd47f3c5bc275da8a33"));
+      assertThat(fileDigests.getDigest(file, FileDigests.SHA256),
+         IsEqual.equalTo("2c26b46b68ffc68ff99b453c1d30413413422d706483bfa0f98a5e886266e7ae"));
+      assertThat(fileDigests.getDigest(file, FileDigests.SHA512),
+         IsEqual.equalTo("f7fbba6e0636f890e56fbbf3283e524c6fa3204ae298382d"
+            + "624741d0dc6638326e282c41be5e4254d8820772c5518a2c5a8c0c7f7eda19594a7eb539453e1ed7"));
+
+      // cached as long as size and mtime are unchanged
+      assertThat(fileDigests.getDigest(file, FileDigests.MD5), IsEqual.equalTo("acbd18db4cc2f85cedef654fccc4a4d8"));
+      assertThat(fileDigests.getCacheHits(), Is.is(1L));
+
+      final long lastModified = file.lastModified();
+      FileUtils.writeStringToFile(file, "bar", "UTF-8");
+      file.setLastModified(lastModified - 2000);
+      assertThat(fileDigests.getDigest(file, FileDigests.MD5), IsEqual.equalTo("37b51d194a7513e45b56f6524f2d51f2"));
+
+      try {
+         fileDigests.getDigest(file, "MD2");
+         fail();
+      }
+      catch (IllegalArgumentException e) {
+      }
+   }
+
+   @Test
+   public void testComputesRequestedAlgorithmOnly() throws IOException {
+      final File file = new File(getWs().getRoot(), "foo.jar");
+      FileUtils.writeStringToFile(file, "foo", "UTF-8");
+
+      final FileDigests fileDigests = new FileDigests();
+
+      assertThat(fileDigests.getDigest(file, FileDigests.SHA1),
+         IsEqual.equalTo("0beec7b5ea3f0fdbc95d0dd47f3c5bc275da8a33"));
+      assertThat(fileDigests.getBytesRead(), Is.is(3L));
+      assertThat(fileDigests.getCacheMisses(), Is.is(1L));
+
+      assertThat(fileDigests.getDigest(file, FileDigests.SHA1),
+         IsEqual.equalTo("0beec7b5ea3f0fdbc95d0dd47f3c5bc275da8a33"));
+      assertThat(fileDigests.getBytesRead(), Is.is(3L));
+      assertThat(fileDigests.getCacheHits(), Is.is(1L));
+
+      // other algorithms are computed on demand
+      assertThat(fileDigests.getDigest(file, FileDigests.MD5), IsEqual.equalTo("acbd18db4cc2f85cedef654fccc4a4d8"));
+      assertThat(fileDigests.getBytesRead(), Is.is(6L));
+      assertThat(fileDigests.getCacheMisses(), Is.is(2L));
+
+      assertThat(fileDigests.getDigest(file, FileDigests.MD5), IsEqual.equalTo("acbd18db4cc2f85cedef654fccc4a4d8"));
+      assertThat(fileDigests.getBytesRead(), Is.is(6L));
+      assertThat(fileDigests.getCacheHits(), Is.is(2L));
+   }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.installer.ArtifactInstallationException;
+import org.apache.maven.artifact.installer.ArtifactInstaller;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
+import org.apache.maven.artifact.repository.MavenArtifactRepository;
+import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
+import org.hamcrest.core.Is;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sourcepit.mavenizor.AbstractMavenizorTest;
+import org.sourcepit.mavenizor.maven.converter.EmbeddedLibraryExtractor;
+
+public class InstallationHandlerTest extends AbstractMavenizorTest {
+   private static final Logger LOG = LoggerFactory.getLogger(InstallationHandlerTest.class);
+
+   private ArtifactInstaller installer;
+
+   private ArtifactRepository localRepository;
+
+   @Before
+   public void setUpInstaller() {
+      // behaves like the Maven installer, which skips identical files and otherwise writes into the existing target
+      installer = mock(ArtifactInstaller.class, new Answer<Object>() {
+         public Object answer(InvocationOnMock invocation) throws Throwable {
+            if ("install".equals(invocation.getMethod().getName())) {
+               final File source = (File) invocation.getArguments()[0];
+               final Artifact artifact = (Artifact) invocation.getArguments()[1];
+               final Path target = getTargetFile(artifact).toPath();
+               if (!Files.exists(target) || !Files.isSameFile(source.toPath(), target)) {
+                  Files.createDirectories(target.getParent());
+                  Files.write(target, Files.readAllBytes(source.toPath()));
+               }
+               return null;
+            }
+            return Mockito.RETURNS_DEFAULTS.answer(invocation);
+         }
+      });
+      localRepository = new MavenArtifactRepository("local", new File(getWs().getRoot(), "local").toURI().toString(),
+         new DefaultRepositoryLayout(), new ArtifactRepositoryPolicy(), new ArtifactRepositoryPolicy());
+   }
+
+   @Test
+   public void testLink() throws IOException {
+      final Artifact artifact = newArtifact("a.jar", "foo");
+
+      final InstallationHandler handler = newHandler(true);
+      handler.distribute(artifact, false);
+
+      final File targetFile = getTargetFile(artifact);
+      assertTrue(Files.isSameFile(artifact.getFile().toPath(), targetFile.toPath()));
+      assertThat(handler.getStatistics().getBytesCopied(), Is.is(0L));
+   }
+
+   @Test
+   public void testFallbackToCopy() throws IOException {
+      final Artifact artifact = newArtifact("a.jar", "foo");
+
+      final InstallationHandler handler = newHandlerWithoutLinkSupport();
+      handler.distribute(artifact, false);
+
+      final File targetFile = getTargetFile(artifact);
+      assertFalse(Files.isSameFile(artifact.getFile().toPath(), targetFile.toPath()));
+      assertThat(read(targetFile), Is.is("foo"));
+      assertThat(handler.getStatistics().getBytesCopied(), Is.is(3L));
+   }
+
+   @Test
+   public void testCopyDoesNotWriteThroughLink() throws IOException {
+      final Artifact linked = newArtifact("a.jar", "foo");
+      newHandler(true).distribute(linked, false);
+
+      final Artifact copied = newArtifact("b.jar", "bar");
+      newHandlerWithoutLinkSupport().distribute(copied, true);
+
+      final File targetFile = getTargetFile(copied);
+      assertThat(read(targetFile), Is.is("bar"));
+      assertThat(read(linked.getFile()), Is.is("foo"));
+   }
+
+   @Test
+   public void testCopyKeepsTargetIfInstallationFails() throws IOException {
+      final Artifact artifact = newArtifact("a.jar", "foo");
+      newHandler(false).distribute(artifact, false);
+
+      write(artifact.getFile(), "bar");
+      final ArtifactInstaller failingInstaller = mock(ArtifactInstaller.class, new Answer<Object>() {
+         public Object answer(InvocationOnMock invocation) throws Throwable {
+            if ("install".equals(invocation.getMethod().getName())) {
+               throw new ArtifactInstallationException("failed");
+            }
+            return Mockito.RETURNS_DEFAULTS.answer(invocation);
+         }
+      });
+      try {
+         new InstallationHandler(LOG, failingInstaller, localRepository, new FileDigests(), null, false).distribute(
+            artifact, true);
+         fail();
+      }
+      catch (RuntimeException e) {
+         assertThat(read(getTargetFile(artifact)), Is.is("foo"));
+      }
+   }
+
+   @Test
+   public void testExtractionDoesNotWriteThroughLink() throws IOException {
+      final Artifact linked = newArtifact("a.jar", "foo");
+      newHandler(true).distribute(linked, false);
+
+      final File bundleDir = new File(getWs().getRoot(), "bundle");
+      write(new File(bundleDir, "lib/a.jar"), "bar");
+
+      final File workDir = new File(getWs().getRoot(), "work");
+      final EmbeddedLibraryExtractor extractor = new EmbeddedLibraryExtractor(bundleDir, workDir);
+      try {
+         assertThat(extractor.extract(new org.sourcepit.common.utils.path.Path("lib/a.jar"), linked.getFile()),
+            Is.is(3L));
+      }
+      finally {
+         extractor.close();
+      }
+
+      assertThat(read(linked.getFile()), Is.is("bar"));
+      assertThat(read(getTargetFile(linked)), Is.is("foo"));
+   }
+
+   private InstallationHandler newHandler(boolean useHardLinks) {
+      return new InstallationHandler(LOG, installer, localRepository, new FileDigests(), null, useHardLinks);
+   }
+
+   private InstallationHandler newHandlerWithoutLinkSupport() {
+      return new InstallationHandler(LOG, installer, localRepository, new FileDigests(), null, true) {
+         @Override
+         void createLink(Path link, Path existing) throws IOException {
+            throw new IOException("links not supported");
+         }
+      };
+   }
+
+   private Artifact newArtifact(String fileName, String content) throws IOException {
+      final DefaultArtifact artifact = new DefaultArtifact("org.sourcepit", "foo", "1.0.0", null, "jar", null,
+         new DefaultArtifactHandler("jar"));
+      final File file = new File(getWs().getRoot(), fileName);
+      write(file, content);
+      artifact.setFile(file);
+      return artifact;
+   }
+
+   private File getTargetFile(Artifact artifact) {
+      return new File(localRepository.getBasedir(), localRepository.pathOf(artifact));
+   }
+
+   private static void write(File file, String content) throws IOException {
+      Files.createDirectories(file.toPath().getParent());
+      Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+   }
+
+   private static String read(File file) throws IOException {
+      return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+   }
+}
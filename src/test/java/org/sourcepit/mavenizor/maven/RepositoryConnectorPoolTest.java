@@ -0,0 +1,159 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.impl.RepositoryConnectorProvider;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.hamcrest.core.Is;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class RepositoryConnectorPoolTest {
+   private final List<RepositoryConnector> created = new ArrayList<RepositoryConnector>();
+
+   private final RemoteRepository repoA = new RemoteRepository.Builder("a", "default", "http://a.example.org")
+      .build();
+
+   private final RemoteRepository repoB = new RemoteRepository.Builder("b", "default", "http://b.example.org")
+      .build();
+
+   @Test
+   public void testExclusiveHandOut() throws Exception {
+      final RepositoryConnectorPool pool = newPool();
+
+      final RepositoryConnector connector1 = pool.acquire(repoA);
+      final RepositoryConnector connector2 = pool.acquire(repoA);
+      assertNotSame(connector1, connector2);
+
+      pool.release(repoA, connector1);
+      assertSame(connector1, pool.acquire(repoA));
+
+      // idle connectors are not shared across repositories
+      pool.release(repoA, connector2);
+      final RepositoryConnector connector3 = pool.acquire(repoB);
+      assertNotSame(connector2, connector3);
+      assertSame(connector2, pool.acquire(repoA));
+
+      assertThat(created.size(), Is.is(3));
+   }
+
+   @Test
+   public void testExclusiveHandOutConcurrently() throws Exception {
+      final RepositoryConnectorPool pool = newPool();
+      final Set<RepositoryConnector> inUse = new HashSet<RepositoryConnector>();
+      final List<Throwable> errors = new ArrayList<Throwable>();
+
+      final List<Thread> threads = new ArrayList<Thread>();
+      for (int i = 0; i < 8; i++) {
+         final RemoteRepository repository = i % 2 == 0 ? repoA : repoB;
+         threads.add(new Thread() {
+            @Override
+            public void run() {
+               try {
+                  for (int j = 0; j < 200; j++) {
+                     final RepositoryConnector connector = pool.acquire(repository);
+                     synchronized (inUse) {
+                        if (!inUse.add(connector)) {
+                           throw new IllegalStateException("Connector handed out twice");
+                        }
+                     }
+                     Thread.yield();
+                     synchronized (inUse) {
+                        inUse.remove(connector);
+                     }
+                     pool.release(repository, connector);
+                  }
+               }
+               catch (Throwable e) {
+                  synchronized (errors) {
+                     errors.add(e);
+                  }
+               }
+            }
+         });
+      }
+      for (Thread thread : threads) {
+         thread.start();
+      }
+      for (Thread thread : threads) {
+         thread.join();
+      }
+
+      assertTrue(errors.toString(), errors.isEmpty());
+      assertTrue(created.size() <= threads.size());
+   }
+
+   @Test
+   public void testClose() throws Exception {
+      final RepositoryConnectorPool pool = newPool();
+
+      final RepositoryConnector idle = pool.acquire(repoA);
+      final RepositoryConnector busy = pool.acquire(repoB);
+      pool.release(repoA, idle);
+      verify(idle, never()).close();
+
+      pool.close();
+      verify(idle, times(1)).close();
+      verify(busy, times(1)).close();
+
+      // released after the pool was closed, not closed twice and not handed out again
+      pool.release(repoB, busy);
+      verify(busy, times(1)).close();
+
+      try {
+         pool.acquire(repoA);
+         fail();
+      }
+      catch (IllegalStateException e) {
+      }
+
+      pool.close();
+      verify(idle, times(1)).close();
+   }
+
+   private RepositoryConnectorPool newPool() {
+      final RepositoryConnectorProvider provider = mock(RepositoryConnectorProvider.class,
+         new Answer<RepositoryConnector>() {
+            public RepositoryConnector answer(InvocationOnMock invocation) throws Throwable {
+               final RepositoryConnector connector = mock(RepositoryConnector.class);
+               synchronized (created) {
+                  created.add(connector);
+               }
+               return connector;
+            }
+         });
+      return new RepositoryConnectorPool(provider, mock(RepositorySystemSession.class));
+   }
+}
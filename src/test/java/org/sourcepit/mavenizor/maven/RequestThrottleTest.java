@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RequestThrottleTest {
+   @Test
+   public void testInvalidRate() {
+      try {
+         new RequestThrottle(0);
+         fail();
+      }
+      catch (IllegalArgumentException e) {
+      }
+   }
+
+   @Test
+   public void testAcquire() {
+      final RequestThrottle throttle = new RequestThrottle(50);
+      final long start = System.nanoTime();
+      for (int i = 0; i < 5; i++) {
+         throttle.acquire();
+      }
+      // the first request passes immediately, the others are spaced by 20 ms
+      final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      assertTrue(elapsed >= 75);
+   }
+
+   @Test
+   public void testAcquireConcurrently() throws InterruptedException {
+      final RequestThrottle throttle = new RequestThrottle(100);
+      final List<Thread> threads = new ArrayList<Thread>();
+      for (int i = 0; i < 4; i++) {
+         threads.add(new Thread() {
+            @Override
+            public void run() {
+               for (int j = 0; j < 3; j++) {
+                  throttle.acquire();
+               }
+            }
+         });
+      }
+
+      final long start = System.nanoTime();
+      for (Thread thread : threads) {
+         thread.start();
+      }
+      for (Thread thread : threads) {
+         thread.join();
+      }
+      // 12 requests shared by all threads, spaced by 10 ms
+      final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      assertTrue(elapsed >= 100);
+   }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.hamcrest.core.Is;
+import org.junit.Test;
+import org.sourcepit.mavenizor.Mavenizor.Result;
+
+public class SharedMavenizorResultsTest {
+   private static class Computation implements Callable<Result> {
+      private int calls;
+
+      public Result call() throws Exception {
+         calls++;
+         return new Result();
+      }
+   }
+
+   @Test
+   public void testClonedSessionsShareResult() {
+      final SharedMavenizorResults sharedResults = new SharedMavenizorResults();
+
+      final MavenSession session = newSession();
+      final MavenSession clone1 = session.clone();
+      final MavenSession clone2 = session.clone();
+      assertNotSame(clone1, clone2);
+
+      final Computation computation = new Computation();
+      final Result result = sharedResults.getOrCompute(clone1, "foo", computation);
+      assertSame(result, sharedResults.getOrCompute(clone2, "foo", computation));
+      assertSame(result, sharedResults.getOrCompute(session, "foo", computation));
+      assertThat(computation.calls, Is.is(1));
+
+      assertNotSame(result, sharedResults.getOrCompute(clone2, "bar", computation));
+      assertThat(computation.calls, Is.is(2));
+   }
+
+   @Test
+   public void testDifferentSessionsDoNotShareResult() {
+      final SharedMavenizorResults sharedResults = new SharedMavenizorResults();
+
+      final Computation computation = new Computation();
+      final Result result1 = sharedResults.getOrCompute(newSession(), "foo", computation);
+      final Result result2 = sharedResults.getOrCompute(newSession(), "foo", computation);
+      assertNotSame(result1, result2);
+      assertThat(computation.calls, Is.is(2));
+   }
+
+   @Test
+   public void testOtherKeysDoNotWaitForComputation() throws Exception {
+      final SharedMavenizorResults sharedResults = new SharedMavenizorResults();
+      final MavenSession session = newSession();
+
+      final CountDownLatch started = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+      final Callable<Result> blockingComputation = new Callable<Result>() {
+         public Result call() throws Exception {
+            started.countDown();
+            release.await();
+            return new Result();
+         }
+      };
+
+      final ExecutorService executor = Executors.newFixedThreadPool(2);
+      try {
+         final Future<Result> foo1 = executor.submit(new Callable<Result>() {
+            public Result call() {
+               return sharedResults.getOrCompute(session.clone(), "foo", blockingComputation);
+            }
+         });
+         started.await();
+
+         final Future<Result> foo2 = executor.submit(new Callable<Result>() {
+            public Result call() {
+               return sharedResults.getOrCompute(session.clone(), "foo", blockingComputation);
+            }
+         });
+
+         // computed while foo is still running
+         final Computation computation = new Computation();
+         sharedResults.getOrCompute(session, "bar", computation);
+         assertThat(computation.calls, Is.is(1));
+         assertThat(foo1.isDone(), Is.is(false));
+
+         release.countDown();
+         assertSame(foo1.get(10, TimeUnit.SECONDS), foo2.get(10, TimeUnit.SECONDS));
+      }
+      finally {
+         release.countDown();
+         executor.shutdownNow();
+      }
+   }
+
+   private static MavenSession newSession() {
+      return new MavenSession(null, null, new DefaultMavenExecutionRequest(), new DefaultMavenExecutionResult());
+   }
+}
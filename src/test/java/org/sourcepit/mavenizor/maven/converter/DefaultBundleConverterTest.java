@@ -17,6 +17,8 @@
 package org.sourcepit.mavenizor.maven.converter;
 
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.sourcepit.common.utils.file.FileUtils.deleteFileOrDirectory;
@@ -30,6 +32,7 @@ import static org.sourcepit.mavenizor.MavenizorTestHarness.newState;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
 
 import javax.inject.Inject;
 
@@ -47,6 +50,7 @@ import org.sourcepit.common.utils.props.LinkedPropertiesMap;
 import org.sourcepit.common.utils.props.PropertiesMap;
 import org.sourcepit.mavenizor.AbstractMavenizorTest;
 import org.sourcepit.mavenizor.Mavenizor.TargetType;
+import org.sourcepit.mavenizor.RunStatistics;
 import org.sourcepit.mavenizor.maven.converter.BundleConverter.Request;
 import org.sourcepit.mavenizor.maven.converter.BundleConverter.Result;
 import org.sourcepit.mavenizor.state.BundleAdapterFactory;
@@ -333,6 +337,48 @@ public class DefaultBundleConverterTest extends AbstractMavenizorTest {
       assertFalse(result.getConvertedArtifacts().get(0).isEmbeddedLibrary());
       assertThat(result.getConvertedArtifacts().size(), Is.is(1));
       assertThat(result.getUnhandledEmbeddedLibraries().size(), Is.is(1));
+
+      // not extracted
+      assertFalse(new File(workingDir, bundle.toString() + "/embedded.jar").exists());
+   }
+
+   @Test
+   public void testAutoDetectLibraryInBundleJar() throws IOException {
+      final ProjectKey expectedLib = new ArtifactKeyBuilder().setGroupId("hans")
+         .setArtifactId("wurst")
+         .setType("jar")
+         .setVersion("3")
+         .toArtifactKey()
+         .getProjectKey();
+
+      BundleManifest mf = newManifest("foo", "1.0.0.qualifier");
+      File bundleDir = newBundle(bundlesDir, mf);
+      addEmbeddedLibrary(bundleDir, mf, ".");
+      addEmbeddedLibrary(bundleDir, mf, "embedded.jar", expectedLib);
+      jar(bundleDir);
+      deleteFileOrDirectory(bundleDir);
+
+      State state = newState(bundlesDir, mf);
+
+      BundleDescription bundle = getBundle(state, "foo");
+      assertTrue(BundleAdapterFactory.DEFAULT.adapt(bundle, File.class).isFile());
+
+      Request request = newRequest(bundle, new LinkedPropertiesMap());
+
+      Result result = converter.toMavenArtifacts(request);
+      assertThat(result.getConvertedArtifacts().size(), Is.is(2));
+
+      ConvertedArtifact artifact = result.getConvertedArtifacts().get(1);
+      assertTrue(artifact.isEmbeddedLibrary());
+      assertThat(artifact.getDirective(), Is.is(ConvertionDirective.AUTO_DETECT));
+      MavenArtifact mavenArtifact = artifact.getMavenArtifact();
+      assertThat(mavenArtifact.getArtifactId(), IsEqual.equalTo(expectedLib.getArtifactId()));
+      assertTrue(mavenArtifact.getFile().isFile());
+
+      // the library is scanned in place and then extracted
+      final RunStatistics statistics = request.getStatistics();
+      assertThat(statistics.getBytesCopied(), Is.is(mavenArtifact.getFile().length()));
+      assertTrue(statistics.getBytesRead() > statistics.getBytesCopied());
    }
 
    @Test
@@ -389,4 +435,170 @@ public class DefaultBundleConverterTest extends AbstractMavenizorTest {
          getWs().delete();
       }
    }
+
+   @Test
+   public void testAutoDetectBundleWithConversionCache() throws IOException {
+      BundleManifest mf = newManifest("foo", "1.0.0.qualifier");
+      File bundleDir = newBundle(bundlesDir, mf);
+
+      final ProjectKey expectedGAV = new ArtifactKeyBuilder().setGroupId("hans")
+         .setArtifactId("wurst")
+         .setType("jar")
+         .setVersion("3")
+         .toArtifactKey()
+         .getProjectKey();
+
+      addMavenMetaData(bundleDir, expectedGAV);
+      final File bundleJar = jar(bundleDir);
+      deleteFileOrDirectory(bundleDir);
+
+      State state = newState(bundlesDir, mf);
+
+      BundleDescription bundle = getBundle(state, "foo");
+
+      final File cacheFile = new File(workingDir, "conversion-cache.properties");
+
+      ConversionCache cache = new ConversionCache(cacheFile, true);
+      cache.load();
+
+      Request request = newRequest(bundle, new LinkedPropertiesMap());
+      request.setConversionCache(cache);
+
+      Result result = converter.toMavenArtifacts(request);
+      assertThat(result.getConvertedArtifacts().size(), Is.is(1));
+      assertThat(result.getConvertedArtifacts().get(0).getDirective(), Is.is(ConvertionDirective.AUTO_DETECT));
+      cache.save();
+      assertTrue(cacheFile.exists());
+
+      // warm
+      cache = new ConversionCache(cacheFile, true);
+      cache.load();
+
+      MavenMetaData metaData = cache.get(bundleJar, null);
+      assertNotNull(metaData);
+      assertThat(metaData.getPomProperties().get("artifactId"), IsEqual.equalTo("wurst"));
+
+      request.setConversionCache(cache);
+      result = converter.toMavenArtifacts(request);
+      assertThat(result.getConvertedArtifacts().size(), Is.is(1));
+
+      MavenArtifact mavenArtifact = result.getConvertedArtifacts().get(0).getMavenArtifact();
+      assertThat(mavenArtifact.getGroupId(), IsEqual.equalTo(expectedGAV.getGroupId()));
+      assertThat(mavenArtifact.getArtifactId(), IsEqual.equalTo(expectedGAV.getArtifactId()));
+      assertThat(mavenArtifact.getVersion(), IsEqual.equalTo(expectedGAV.getVersion()));
+
+      // stale
+      assertTrue(bundleJar.setLastModified(bundleJar.lastModified() - 10000));
+      cache = new ConversionCache(cacheFile, true);
+      cache.load();
+      assertNull(cache.get(bundleJar, null));
+   }
+
+   @Test
+   public void testConversionCacheColdAndWarmResultsAreEqual() throws IOException {
+      final ProjectKey bundleGAV = new ArtifactKeyBuilder().setGroupId("hans")
+         .setArtifactId("wurst")
+         .setType("jar")
+         .setVersion("3")
+         .toArtifactKey()
+         .getProjectKey();
+
+      final ProjectKey libGAV = new ArtifactKeyBuilder().setGroupId("hans")
+         .setArtifactId("kaese")
+         .setType("jar")
+         .setVersion("4")
+         .toArtifactKey()
+         .getProjectKey();
+
+      BundleManifest mf = newManifest("foo", "1.0.0.qualifier");
+      File bundleDir = newBundle(bundlesDir, mf);
+      addEmbeddedLibrary(bundleDir, mf, ".");
+      addEmbeddedLibrary(bundleDir, mf, "embedded.jar", libGAV);
+      addMavenMetaData(bundleDir, bundleGAV);
+      final File bundleJar = jar(bundleDir);
+      deleteFileOrDirectory(bundleDir);
+
+      State state = newState(bundlesDir, mf);
+      BundleDescription bundle = getBundle(state, "foo");
+
+      final PropertiesMap options = new LinkedPropertiesMap();
+
+      final Result uncached = converter.toMavenArtifacts(newRequest(bundle, options));
+
+      final File cacheFile = new File(workingDir, "conversion-cache.properties");
+      ConversionCache cache = new ConversionCache(cacheFile, false);
+      cache.load();
+      Request request = newRequest(bundle, options);
+      request.setConversionCache(cache);
+      final Result cold = converter.toMavenArtifacts(request);
+      cache.save();
+
+      cache = new ConversionCache(cacheFile, false);
+      cache.load();
+      request = newRequest(bundle, options);
+      request.setConversionCache(cache);
+      final Result warm = converter.toMavenArtifacts(request);
+
+      assertThat(describe(cold), IsEqual.equalTo(describe(uncached)));
+      assertThat(describe(warm), IsEqual.equalTo(describe(cold)));
+
+      final MavenMetaData scanned = MavenMetaDataScanner.scan(bundleJar);
+      final MavenMetaData cached = cache.get(bundleJar, null);
+      assertThat(cached.getPackaging(), IsEqual.equalTo(scanned.getPackaging()));
+      assertThat(new HashMap<String, String>(cached.getPomProperties()),
+         IsEqual.equalTo(new HashMap<String, String>(scanned.getPomProperties())));
+   }
+
+   private static String describe(Result result) {
+      final StringBuilder sb = new StringBuilder();
+      for (ConvertedArtifact artifact : result.getConvertedArtifacts()) {
+         final MavenArtifact mavenArtifact = artifact.getMavenArtifact();
+         sb.append(artifact.getDirective()).append(',');
+         sb.append(artifact.isEmbeddedLibrary()).append(',');
+         sb.append(mavenArtifact.getGroupId()).append(':');
+         sb.append(mavenArtifact.getArtifactId()).append(':');
+         sb.append(mavenArtifact.getVersion()).append(',');
+         sb.append(mavenArtifact.getFile()).append('\n');
+      }
+      sb.append(result.getMissingEmbeddedLibraries()).append('\n');
+      sb.append(result.getUnhandledEmbeddedLibraries());
+      return sb.toString();
+   }
+
+   @Test
+   public void testSkipExtractionOfUnchangedLibrary() throws IOException {
+      BundleManifest mf = newManifest("foo", "1.0.0.qualifier");
+      File bundleDir = newBundle(bundlesDir, mf);
+      addEmbeddedLibrary(bundleDir, mf, ".");
+      addEmbeddedLibrary(bundleDir, mf, "embedded.jar");
+
+      State state = newState(bundlesDir, mf);
+
+      BundleDescription bundle = getBundle(state, "foo");
+
+      PropertiesMap options = new LinkedPropertiesMap();
+      options.put(bundle.toString() + "/embedded.jar", "mavenize");
+
+      Request request = newRequest(bundle, options);
+
+      Result result = converter.toMavenArtifacts(request);
+      assertThat(result.getConvertedArtifacts().size(), Is.is(2));
+
+      final File libFile = result.getConvertedArtifacts().get(1).getMavenArtifact().getFile();
+      assertTrue(libFile.isFile());
+      assertTrue(libFile.setLastModified(10000));
+
+      // unchanged source, no copy
+      result = converter.toMavenArtifacts(request);
+      assertThat(result.getConvertedArtifacts().size(), Is.is(2));
+      assertThat(libFile.lastModified(), Is.is(10000L));
+
+      // changed source, copy
+      final File srcFile = new File(bundleDir, "embedded.jar");
+      assertTrue(srcFile.setLastModified(srcFile.lastModified() - 10000));
+
+      result = converter.toMavenArtifacts(request);
+      assertThat(result.getConvertedArtifacts().size(), Is.is(2));
+      assertFalse(libFile.lastModified() == 10000L);
+   }
 }
@@ -124,6 +124,28 @@ public class DefaultGAVStrategyTest extends AbstractMavenizorTest {
       assertThat(groupId, equalTo("foo"));
    }
 
+   @Test
+   public void testDeriveGroupIdWithNestedGroup3Prefixes() {
+      GAVStrategyFactory.Request request = new GAVStrategyFactory.Request();
+      request.getGroup3Prefixes().add("org.eclipse.emf.ecore");
+      request.getGroup3Prefixes().add("com");
+
+      final GAVStrategy converter = factory.newGAVStrategy(request);
+
+      BundleDescription bundle = newBundleDescription("org.eclipse.emf.ecore.xmi");
+      assertThat(converter.deriveGroupId(bundle), equalTo("org.eclipse.emf"));
+      assertThat(converter.deriveGroupId(bundle), equalTo("org.eclipse.emf"));
+
+      bundle = newBundleDescription("org.eclipse.emf.core");
+      assertThat(converter.deriveGroupId(bundle), equalTo("org.eclipse"));
+
+      bundle = newBundleDescription("com.foo.bar.core");
+      assertThat(converter.deriveGroupId(bundle), equalTo("com.foo.bar"));
+
+      bundle = newBundleDescription("org.apachefoo.bar.core");
+      assertThat(converter.deriveGroupId(bundle), equalTo("org.apachefoo.bar"));
+   }
+
    @Test
    public void testGroupIdMapping() {
       GAVStrategyFactory.Request request = new GAVStrategyFactory.Request();
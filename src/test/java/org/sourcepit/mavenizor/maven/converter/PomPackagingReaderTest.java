@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.maven.converter;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+
+import org.hamcrest.core.IsEqual;
+import org.junit.Test;
+
+public class PomPackagingReaderTest {
+   @Test
+   public void testReadPackaging() throws Exception {
+      String pom = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+         + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">" + "<modelVersion>4.0.0</modelVersion>"
+         + "<artifactId>foo</artifactId>" + "<packaging> eclipse-plugin </packaging>" + "</project>";
+      assertThat(PomPackagingReader.readPackaging(in(pom)), IsEqual.equalTo("eclipse-plugin"));
+
+      pom = "<project><modelVersion>4.0.0</modelVersion><artifactId>foo</artifactId></project>";
+      assertNull(PomPackagingReader.readPackaging(in(pom)));
+
+      // only /project/packaging counts
+      pom = "<project><build><packaging>jar</packaging></build></project>";
+      assertNull(PomPackagingReader.readPackaging(in(pom)));
+
+      pom = "<foo><packaging>jar</packaging></foo>";
+      assertNull(PomPackagingReader.readPackaging(in(pom)));
+   }
+
+   @Test
+   public void testStopsAfterPackaging() throws Exception {
+      // content after packaging must not be read
+      final String pom = "<project><packaging>bundle</packaging><dependencies><broken></project>";
+      assertThat(PomPackagingReader.readPackaging(in(pom)), IsEqual.equalTo("bundle"));
+   }
+
+   private static ByteArrayInputStream in(String xml) throws UnsupportedEncodingException {
+      return new ByteArrayInputStream(xml.getBytes("UTF-8"));
+   }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.state;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import org.hamcrest.core.Is;
+import org.hamcrest.core.IsEqual;
+import org.junit.Test;
+import org.sourcepit.common.manifest.osgi.BundleManifest;
+
+public class BundleHeadersTest {
+   @Test
+   public void testParse() throws Exception {
+      final StringBuilder mf = new StringBuilder();
+      mf.append("Manifest-Version: 1.0\r\n");
+      mf.append("Bundle-SymbolicName: org.sourcepit.foo;singleton:=tru\r\n");
+      mf.append(" e\r\n");
+      mf.append("Bundle-Version: 1.0.0.qualifier\r\n");
+      mf.append("Bundle-ClassPath: .,\r\n");
+      mf.append(" lib/a.jar,lib/b.jar\r\n");
+      mf.append("Maven-GroupId: org.sourcepit\r\n");
+      mf.append("\r\n");
+      mf.append("Name: foo/Bar.class\r\n");
+      mf.append("SHA1-Digest: xyz\r\n");
+
+      final BundleHeaders headers = BundleHeaders.parse(mf.toString().getBytes("UTF-8"));
+      assertThat(headers.getHeaders().size(), Is.is(5));
+      assertThat(headers.getHeaderValue("Bundle-SymbolicName"),
+         IsEqual.equalTo("org.sourcepit.foo;singleton:=true"));
+      assertThat(headers.getHeaderValue("Maven-GroupId"), IsEqual.equalTo("org.sourcepit"));
+      assertNull(headers.getHeaderValue("Eclipse-SourceBundle"));
+      assertNull(headers.getHeaderValue("Name"));
+
+      assertThat(headers.getBundleClassPath(), IsEqual.equalTo(Arrays.asList(".", "lib/a.jar", "lib/b.jar")));
+
+      final BundleManifest manifest = headers.getManifest();
+      assertThat(manifest.getBundleSymbolicName().getSymbolicName(), IsEqual.equalTo("org.sourcepit.foo"));
+      assertSame(manifest, headers.getManifest());
+   }
+
+   @Test
+   public void testFoldedMultibyteCharacter() throws Exception {
+      final byte[] name = "Bundle-Name: Stra\u00dfenverzeichnis M\u00fcller".getBytes("UTF-8");
+      // fold in the middle of the two byte sequence of the umlaut
+      final int fold = name.length - 5;
+      assertThat(name[fold - 1] & 0xFF, Is.is(0xC3));
+
+      final ByteArrayOutputStream mf = new ByteArrayOutputStream();
+      mf.write("Bundle-SymbolicName: foo\r\n".getBytes("UTF-8"));
+      mf.write(name, 0, fold);
+      mf.write("\r\n ".getBytes("UTF-8"));
+      mf.write(name, fold, name.length - fold);
+      mf.write("\r\n".getBytes("UTF-8"));
+
+      final BundleHeaders headers = BundleHeaders.parse(mf.toByteArray());
+      assertThat(headers.getHeaderValue("Bundle-Name"), IsEqual.equalTo("Stra\u00dfenverzeichnis M\u00fcller"));
+   }
+
+   @Test
+   public void testNoBundleClassPath() throws Exception {
+      final BundleHeaders headers = BundleHeaders.parse("Bundle-SymbolicName: foo\n".getBytes("UTF-8"));
+      assertThat(headers.getHeaderValue("Bundle-SymbolicName"), IsEqual.equalTo("foo"));
+      assertNull(headers.getBundleClassPath());
+   }
+}
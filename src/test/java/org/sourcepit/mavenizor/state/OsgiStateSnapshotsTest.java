@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014 Bernd Vogt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sourcepit.mavenizor.state;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.addBundleRequirement;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.getBundle;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.newBundle;
+import static org.sourcepit.mavenizor.MavenizorTestHarness.newManifest;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.eclipse.osgi.service.resolver.State;
+import org.hamcrest.core.Is;
+import org.hamcrest.core.IsEqual;
+import org.junit.Test;
+import org.sourcepit.common.manifest.osgi.BundleManifest;
+import org.sourcepit.mavenizor.AbstractMavenizorTest;
+
+public class OsgiStateSnapshotsTest extends AbstractMavenizorTest {
+   @Test
+   public void testSaveAndLoad() throws Exception {
+      final File bundlesDir = new File(getWs().getRoot(), "bundles");
+
+      final BundleManifest manifestA = newManifest("a", "1");
+      final File bundleA = newBundle(bundlesDir, manifestA);
+
+      final BundleManifest manifestB = newManifest("b", "1");
+      addBundleRequirement(manifestB, "a", "1");
+      final File bundleB = newBundle(bundlesDir, manifestB);
+
+      final List<File> bundleLocations = new ArrayList<File>();
+      bundleLocations.add(bundleA);
+      bundleLocations.add(bundleB);
+
+      final OsgiStateBuilder stateBuilder = new OsgiStateBuilder();
+      final Set<String> os = new HashSet<String>();
+      os.add("linux");
+      final Map<String, Object> targetMap = new HashMap<String, Object>();
+      targetMap.put(OsgiStateBuilder.OSGI_OS, os);
+      stateBuilder.addPlatformProperties(targetMap);
+      for (File bundleLocation : bundleLocations) {
+         stateBuilder.addBundle(bundleLocation);
+      }
+      final State state = stateBuilder.getState();
+      state.resolve(false);
+
+      final OsgiStateSnapshots snapshots = new OsgiStateSnapshots(new File(getWs().getRoot(), "state"));
+      final String key = OsgiStateSnapshots.computeKey(bundleLocations, stateBuilder.getPlatformProperties());
+      assertNull(snapshots.load(key));
+
+      snapshots.save(key, state);
+
+      // collection values are restored after writing
+      assertThat(stateBuilder.getPlatformProperties().get(OsgiStateBuilder.OSGI_OS), IsEqual.equalTo((Object) os));
+
+      final State loaded = snapshots.load(key);
+      assertNotNull(loaded);
+      assertThat(loaded.getBundles().length, Is.is(2));
+
+      final BundleDescription b = getBundle(loaded, "b");
+      assertTrue(b.isResolved());
+      assertThat(b.getResolvedRequires().length, Is.is(1));
+      assertThat(BundleAdapterFactory.DEFAULT.adapt(b, File.class), IsEqual.equalTo(bundleB.getAbsoluteFile()));
+
+      // changed manifest, changed key
+      final File manifestFile = new File(bundleA, "META-INF/MANIFEST.MF");
+      assertTrue(manifestFile.setLastModified(manifestFile.lastModified() - 10000));
+      assertFalse(key.equals(OsgiStateSnapshots.computeKey(bundleLocations, stateBuilder.getPlatformProperties())));
+   }
+}